@@ -0,0 +1,374 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One-pass adaptive Huffman coding in the style of the FGK algorithm. The tree starts out as a
+ * single NYT ("not yet transmitted") leaf and is updated after every character, so no frequency
+ * model is needed up front and every character is coded as soon as it arrives. A character seen
+ * for the first time is written as the code of the NYT leaf followed by the character as a 16 bit
+ * literal; from then on it has a leaf of its own.
+ * <p>
+ * The decoder applies exactly the same updates as the encoder, so the two sides only stay in step
+ * if they start from the same model and see the same characters in the same order. Each side of a
+ * stream therefore keeps its own instance: {@link #compress(CharSequence)} and {@link
+ * #decompress(ByteBuffer)} continue where the previous call on the same instance stopped, so a
+ * live stream can be sent as a sequence of chunks. Instances are not thread-safe.
+ * <p>
+ * Once the total weight reaches a limit, every weight is halved and the tree is rebuilt from the
+ * halved weights, so streams of any length can be coded. This happens in the update that both
+ * sides apply, so they rescale at the same character.
+ */
+public class AdaptiveHuffman {
+
+    //nodes are kept in order of non-increasing weight, with the root at 0 and siblings at the
+    //positions 2k + 1 and 2k + 2, which is the sibling property that makes the tree a Huffman
+    //tree. Swapping two positions moves whole subtrees; the parent of a position never changes.
+    private int[] weight = new int[64];
+    private int[] parent = new int[64];
+    //position of the first child, 0 for leaves since the root is nobody's child
+    private int[] child = new int[64];
+    //character of each leaf, NYT for the NYT leaf
+    private int[] symbol = new int[64];
+    private int size = 1;
+    private int nyt = 0;
+    //position of the leaf of each character, 0 if it has not been seen
+    private final int[] leaf = new int[Character.MAX_VALUE + 1];
+    //scratch space for the path from a leaf to the root
+    private int[] path = new int[64];
+
+    //the total weight at which all weights are halved, far enough below the int range that the
+    //sum of any two weights fits
+    private static final int WEIGHT_LIMIT = 1 << 30;
+    private final int weightLimit;
+
+    private static final int NYT = -1;
+    //a code has at most one bit per node, so this always has room for the next one and a literal
+    private static final int BUFFER_SIZE = 1 << 15;
+
+    /**
+     * Constructs a coder with an empty model, in which every character starts out unseen.
+     */
+    public AdaptiveHuffman() {
+        this(WEIGHT_LIMIT);
+    }
+
+    /**
+     * Constructs a coder with an empty model that halves its weights once their total reaches
+     * weightLimit.
+     */
+    AdaptiveHuffman(int weightLimit) {
+        this.weightLimit = weightLimit;
+        symbol[0] = NYT;
+    }
+
+    /**
+     * Constructs a coder whose model has already seen the characters of the seed, so that the
+     * first characters of a stream do not all have to be sent as literals. Both sides of a
+     * stream must use the same seed.
+     *
+     * @param seed the characters to prime the model with, can be empty
+     * @throws IllegalArgumentException if seed is null
+     */
+    public AdaptiveHuffman(String seed) {
+        this();
+        if (seed == null) {
+            throw new IllegalArgumentException("null seed");
+        }
+        for (int i = 0; i < seed.length(); i++) {
+            update(seed.charAt(i));
+        }
+    }
+
+    /**
+     * Compresses the input and updates the model with it. The layout is the same as that of
+     * {@link Huffman#compressToBytes(CharSequence)}: the number of bits as a long followed by the
+     * bits, with the last byte padded with zeroes.
+     *
+     * @param input the characters to compress, can be empty
+     * @return the compressed input
+     * @throws IllegalArgumentException if the input is null
+     */
+    public byte[] compress(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input in compress");
+        }
+        //complete bytes are moved out whenever the buffer runs low, the writer keeps the rest
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        BitWriter writer = new BitWriter(buffer);
+        long bitCount = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int depth = pathToRoot(leaf[c] != 0 ? leaf[c] : nyt);
+            if (buffer.remaining() < depth / 8 + 4) {
+                bytes.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            for (int b = depth - 1; b >= 0; b--) {
+                writer.write(path[b], 1);
+            }
+            bitCount += depth;
+            if (leaf[c] == 0) {
+                writer.write(c, Huffman.LITERAL_BITS);
+                bitCount += Huffman.LITERAL_BITS;
+            }
+            update(c);
+        }
+        writer.flush();
+        bytes.write(buffer.array(), 0, buffer.position());
+
+        ByteBuffer out = ByteBuffer.allocate(Long.BYTES + bytes.size());
+        out.putLong(bitCount);
+        out.put(bytes.toByteArray());
+        return out.array();
+    }
+
+    /**
+     * Decompresses the output of {@link #compress(CharSequence)} and updates the model with the
+     * decoded characters, starting at the buffer's position.
+     *
+     * @param input the buffer to read from, its position is advanced past the encoding
+     * @return the decoded characters
+     * @throws IllegalArgumentException if the input is null, truncated, or ends inside a code
+     */
+    public String decompress(ByteBuffer input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        if (input.remaining() < Long.BYTES) {
+            throw new IllegalArgumentException("missing bit count");
+        }
+        long bitCount = input.getLong();
+        if (bitCount < 0 || (bitCount + 7) / 8 > input.remaining()) {
+            throw new IllegalArgumentException("truncated input");
+        }
+
+        BitReader reader = new BitReader(input, bitCount);
+        StringBuilder str = new StringBuilder();
+        while (reader.hasNext()) {
+            int node = 0;
+            while (child[node] != 0) {
+                if (!reader.hasNext()) {
+                    throw new IllegalArgumentException("input ends inside a code");
+                }
+                node = child[node] + reader.readBit();
+            }
+            int c = symbol[node];
+            if (c == NYT) {
+                c = 0;
+                for (int b = 0; b < Huffman.LITERAL_BITS; b++) {
+                    if (!reader.hasNext()) {
+                        throw new IllegalArgumentException("input ends inside a literal");
+                    }
+                    c = (c << 1) | reader.readBit();
+                }
+            }
+            str.append((char) c);
+            update((char) c);
+        }
+        return str.toString();
+    }
+
+    /**
+     * Stores the bits of the code of a node in path, the last bit first.
+     *
+     * @return the length of the code
+     */
+    private int pathToRoot(int node) {
+        int depth = 0;
+        while (node != 0) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, 2 * depth);
+            }
+            //the first of two siblings is the 0 branch
+            path[depth++] = (node & 1) == 1 ? 0 : 1;
+            node = parent[node];
+        }
+        return depth;
+    }
+
+    /**
+     * @return the length of the code the next occurrence of c would be written with, not
+     *         counting the literal of an unseen character
+     */
+    public int codeLength(char c) {
+        return pathToRoot(leaf[c] != 0 ? leaf[c] : nyt);
+    }
+
+    /**
+     * Adds one occurrence of c to the model. Walking up from its leaf, each node is first swapped
+     * to the front of the nodes with the same weight and then incremented, which keeps the nodes
+     * ordered by weight.
+     */
+    private void update(char c) {
+        if (weight[0] >= weightLimit) {
+            rescale();
+        }
+        int node = leaf[c];
+        if (node == 0) {
+            //the NYT leaf becomes the parent of a new NYT leaf and the new character's leaf
+            node = split(c);
+        }
+        while (true) {
+            int front = frontOf(weight[node]);
+            if (node != 0 && front == parent[node]) {
+                //only the sibling of the NYT leaf has the weight of its parent, which leads the
+                //weight class. The node takes its parent's place instead, after handing its own
+                //place in the parent's subtree to the node that was next in line.
+                if (node == front + 1) {
+                    weight[node]++;
+                } else {
+                    swap(node, front + 1);
+                    swap(front, front + 1);
+                }
+                node = front;
+            } else if (front != node) {
+                swap(node, front);
+                node = front;
+            }
+            weight[node]++;
+            if (node == 0) {
+                return;
+            }
+            node = parent[node];
+        }
+    }
+
+    /**
+     * Halves the weight of every leaf, rounding up so that seen characters keep a weight of at
+     * least 1, and rebuilds the tree from the new weights. The nodes are laid out in the reverse
+     * of the order in which the Huffman construction takes them, which is by non-decreasing
+     * weight with siblings taken together, so the tree keeps the sibling property.
+     */
+    private void rescale() {
+        int nodes = size;
+        int leaves = (nodes + 1) / 2;
+        //halved weight above position, so sorting orders the leaves by weight and then position
+        long[] sorted = new long[leaves];
+        int n = 0;
+        for (int i = 0; i < nodes; i++) {
+            if (child[i] == 0) {
+                sorted[n++] = ((long) ((weight[i] + 1) / 2) << 32) | i;
+            }
+        }
+        Arrays.sort(sorted);
+
+        //leaves are 0 to leaves - 1 in weight order, inner nodes follow in order of creation
+        int[] w = new int[nodes];
+        int[] leafSymbol = new int[leaves];
+        for (int i = 0; i < leaves; i++) {
+            w[i] = (int) (sorted[i] >>> 32);
+            leafSymbol[i] = symbol[(int) sorted[i]];
+        }
+        //two queues: leaves in weight order, and inner nodes, which are created in weight order
+        int[] taken = new int[nodes - 1];
+        int nextLeaf = 0;
+        int nextInner = leaves;
+        for (int created = leaves; created < nodes; created++) {
+            for (int k = 2 * (created - leaves); k < 2 * (created - leaves) + 2; k++) {
+                boolean leafFirst = nextInner == created
+                        || nextLeaf < leaves && w[nextLeaf] <= w[nextInner];
+                taken[k] = leafFirst ? nextLeaf++ : nextInner++;
+            }
+            w[created] = w[taken[2 * (created - leaves)]] + w[taken[2 * (created - leaves) + 1]];
+        }
+
+        //the root goes first, and of two siblings the heavier one, which was taken second
+        int[] position = new int[nodes];
+        for (int k = 0; k < nodes - 1; k++) {
+            position[taken[k]] = nodes - 1 - k;
+        }
+        for (int id = 0; id < nodes; id++) {
+            int node = position[id];
+            weight[node] = w[id];
+            if (id < leaves) {
+                child[node] = 0;
+                symbol[node] = leafSymbol[id];
+            } else {
+                child[node] = position[taken[2 * (id - leaves) + 1]];
+                symbol[node] = 0;
+            }
+            relink(node);
+        }
+    }
+
+    /**
+     * @return the position of the new leaf for c
+     */
+    private int split(char c) {
+        if (size + 2 > weight.length) {
+            int capacity = 2 * weight.length;
+            weight = Arrays.copyOf(weight, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            child = Arrays.copyOf(child, capacity);
+            symbol = Arrays.copyOf(symbol, capacity);
+        }
+        int node = size;
+        child[nyt] = node;
+        symbol[nyt] = 0;
+        for (int i = node; i < node + 2; i++) {
+            parent[i] = nyt;
+            child[i] = 0;
+            weight[i] = 0;
+        }
+        symbol[node] = c;
+        leaf[c] = node;
+        symbol[node + 1] = NYT;
+        nyt = node + 1;
+        size += 2;
+        return node;
+    }
+
+    /**
+     * @return the first position with the given weight, found by binary search since weights do
+     *         not increase with position
+     */
+    private int frontOf(int w) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (weight[mid] > w) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Exchanges the subtrees at two positions, neither of which may be an ancestor of the other.
+     */
+    private void swap(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        int t = weight[a];
+        weight[a] = weight[b];
+        weight[b] = t;
+        t = child[a];
+        child[a] = child[b];
+        child[b] = t;
+        t = symbol[a];
+        symbol[a] = symbol[b];
+        symbol[b] = t;
+        relink(a);
+        relink(b);
+    }
+
+    /**
+     * Points the children of a position, or the leaf index of its character, back at it.
+     */
+    private void relink(int node) {
+        if (child[node] != 0) {
+            parent[child[node]] = node;
+            parent[child[node] + 1] = node;
+        } else if (symbol[node] == NYT) {
+            nyt = node;
+        } else {
+            leaf[symbol[node]] = node;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class AdaptiveHuffmanTest {
+    //skewed towards the low characters, starting at 'a'
+    private static String skewedInput(int length, int alphabet, long seed) {
+        StringBuilder chars = new StringBuilder();
+        for (int c = 0; c < alphabet; c++) {
+            chars.append((char) ('a' + c));
+        }
+        return TestInputs.skewedInput(chars.toString(), length, 3, seed);
+    }
+
+    //test compress - round trip from an empty model
+    @Test
+    public void testRoundTrip() {
+        String input = skewedInput(20000, 40, 1);
+        byte[] compressed = new AdaptiveHuffman().compress(input);
+        assertEquals(input, new AdaptiveHuffman().decompress(ByteBuffer.wrap(compressed)));
+    }
+
+    //test compress - every character seen for the first time is a literal
+    @Test
+    public void testFirstCharacters() {
+        AdaptiveHuffman encoder = new AdaptiveHuffman();
+        byte[] compressed = encoder.compress("a");
+        assertEquals(16, ByteBuffer.wrap(compressed).getLong());
+        assertEquals(1, encoder.codeLength('a'));
+        assertEquals(1, encoder.codeLength('b'));
+        compressed = encoder.compress("b\u4e2d\uffff\u0000");
+        assertEquals("b\u4e2d\uffff\u0000",
+                new AdaptiveHuffman("a").decompress(ByteBuffer.wrap(compressed)));
+    }
+
+    //test compress - chunks of a stream continue the same model on both sides
+    @Test
+    public void testChunks() {
+        AdaptiveHuffman encoder = new AdaptiveHuffman();
+        AdaptiveHuffman decoder = new AdaptiveHuffman();
+        for (int chunk = 0; chunk < 50; chunk++) {
+            String input = skewedInput(chunk * 7, 5 + chunk, chunk);
+            assertEquals(input, decoder.decompress(ByteBuffer.wrap(encoder.compress(input))));
+        }
+        assertEquals(encoder.codeLength('a'), decoder.codeLength('a'));
+    }
+
+    //test compress - close to a static code built from the same text
+    @Test
+    public void testNearStatic() {
+        String input = skewedInput(50000, 60, 2);
+        long adaptive = ByteBuffer.wrap(new AdaptiveHuffman().compress(input)).getLong();
+        long optimal = ByteBuffer.wrap(new Huffman(input).compressToBytes(input)).getLong();
+        assertTrue(adaptive < optimal * 1.02);
+        //a primed model skips the literals
+        long primed = ByteBuffer.wrap(new AdaptiveHuffman(input).compress(input)).getLong();
+        assertTrue(primed < adaptive);
+    }
+
+    //test compress - many distinct characters make deep trees
+    @Test
+    public void testLargeAlphabet() {
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            str.append((char) (i * 7919 % 65536));
+            str.append((char) (i % 3));
+        }
+        String input = str.toString();
+        byte[] compressed = new AdaptiveHuffman().compress(input);
+        assertEquals(input, new AdaptiveHuffman().decompress(ByteBuffer.wrap(compressed)));
+    }
+
+    //test compress - one character repeated, whose sibling stays the NYT leaf
+    @Test
+    public void testOneCharacter() {
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'z');
+        String input = new String(chars);
+        AdaptiveHuffman encoder = new AdaptiveHuffman();
+        byte[] compressed = encoder.compress(input);
+        assertEquals(16 + 999, ByteBuffer.wrap(compressed).getLong());
+        assertEquals(input, new AdaptiveHuffman().decompress(ByteBuffer.wrap(compressed)));
+    }
+
+    //test compress - weights are halved at the limit, on both sides at the same character
+    @Test
+    public void testRescale() {
+        for (int limit : new int[] {2, 16, 1000}) {
+            AdaptiveHuffman encoder = new AdaptiveHuffman(limit);
+            AdaptiveHuffman decoder = new AdaptiveHuffman(limit);
+            for (int chunk = 0; chunk < 20; chunk++) {
+                String input = skewedInput(500, 10 + 5 * chunk, chunk);
+                assertEquals(input, decoder.decompress(ByteBuffer.wrap(encoder.compress(input))));
+            }
+            for (char c = 'a'; c < 'a' + 120; c++) {
+                assertEquals(encoder.codeLength(c), decoder.codeLength(c));
+            }
+        }
+    }
+
+    //test compress - a rescaled model still compresses a skewed stream close to a static code
+    @Test
+    public void testRescaleNearStatic() {
+        String input = skewedInput(50000, 60, 3);
+        long rescaled = ByteBuffer.wrap(new AdaptiveHuffman(4096).compress(input)).getLong();
+        long optimal = ByteBuffer.wrap(new Huffman(input).compressToBytes(input)).getLong();
+        assertTrue(rescaled < optimal * 1.05);
+        byte[] compressed = new AdaptiveHuffman(4096).compress(input);
+        assertEquals(input, new AdaptiveHuffman(4096).decompress(ByteBuffer.wrap(compressed)));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testTruncatedLiteral() {
+        byte[] compressed = new AdaptiveHuffman().compress("ab");
+        compressed[7] -= 2;
+        new AdaptiveHuffman().decompress(ByteBuffer.wrap(compressed));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testNull() {
+        new AdaptiveHuffman().compress(null);
+    }
+}
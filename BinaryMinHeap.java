@@ -1,3 +1,5 @@
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.NoSuchElementException;
 
@@ -8,8 +10,9 @@ import java.util.NoSuchElementException;
  * Your task will be to implement this abstract class in BinaryMinHeapImpl.java
  * <p>
  * Your constructor should not take in any arguments, and it should initialize an
- * empty heap. You do NOT have to implement build-heap, instead building a heap
- * will be done via mutiple calls to "add()"
+ * empty heap. Many elements can be added at once with "addAll()", which by default
+ * calls "add()" for each of them; implementations may override it with an O(n)
+ * build-heap.
  * <p>
  * As always, feel free to add package private fields and helper methods.
  *
@@ -52,6 +55,35 @@ public interface BinaryMinHeap<Key extends Comparable<Key>, V> {
      */
     void add(Key key, V value);
 
+    /**
+     * Adds all entries of a collection, as if by calling {@link #add(Comparable, Object)} for
+     * each of them in iteration order. All entries are checked before any is added, so the heap is
+     * unchanged if any entry is rejected.
+     * <p>
+     * Runtime: O(k log n) for k entries, O(n) for implementations that build the heap bottom-up
+     *
+     * @param entries the key-value pairs to insert
+     * @throws IllegalArgumentException if entries is null, or any key is null, or any value is
+     *                                  already in the min-heap or occurs twice in entries
+     */
+    default void addAll(Collection<? extends Entry<Key, V>> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException("null entries");
+        }
+        Set<V> added = new HashSet<>();
+        for (Entry<Key, V> entry : entries) {
+            if (entry == null || entry.key == null) {
+                throw new IllegalArgumentException("key is null");
+            }
+            if (containsValue(entry.value) || !added.add(entry.value)) {
+                throw new IllegalArgumentException("already contained value");
+            }
+        }
+        for (Entry<Key, V> entry : entries) {
+            add(entry.key, entry.value);
+        }
+    }
+
     /**
      * Updates the key of a particular value in the min-heap
      * to a smaller key.
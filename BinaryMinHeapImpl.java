@@ -1,7 +1,7 @@
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.HashMap;
 import java.util.HashSet;
 
 /**
@@ -13,17 +13,37 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
      * {@inheritDoc}
      */
 
-    private ArrayList<Entry<Key, V>> entries = new ArrayList<Entry<Key, V>>();
-    private HashMap<V, Integer> tracker = new HashMap<V, Integer>();
+    //keys and values in parallel arrays, so moving an element allocates nothing
+    private Object[] keys = new Object[16];
+    private Object[] values = new Object[16];
+    private int size;
+    private PositionMap<V> tracker = new PositionMap<>();
+
+    /**
+     * Constructs an empty heap.
+     */
+    public BinaryMinHeapImpl() {
+    }
+
+    /**
+     * Constructs a heap holding the given entries, built bottom-up in O(n).
+     *
+     * @param entries the key-value pairs to insert
+     * @throws IllegalArgumentException if entries is null, or any key is null, or any value
+     *                                  occurs twice in entries
+     */
+    public BinaryMinHeapImpl(Collection<? extends Entry<Key, V>> entries) {
+        addAll(entries);
+    }
 
     @Override
     public int size() {
-        return entries.size();
+        return size;
     }
 
     @Override
     public boolean isEmpty() {
-        return entries.size() == 0;
+        return size == 0;
     }
 
     /**
@@ -31,7 +51,7 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
      */
     @Override
     public boolean containsValue(V value) {
-        return tracker.containsKey(value);
+        return tracker.get(value) >= 0;
     }
 
     /**
@@ -45,13 +65,59 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
             throw new IllegalArgumentException("already contained value");
         } else {
             //O(logn)
-            //value - needed to be updated
-            //key - new key value
-            tracker.put(value, entries.size());
-            entries.add(new Entry<>(key, value));
-            decreaseKey(value, key);
+            ensureCapacity(size + 1);
+            siftUp(size++, key, value);
+        }
+    }
 
+    /**
+     * Adds all entries, either by inserting them one at a time or, when that would take more
+     * comparisons, by appending them and rebuilding the whole heap bottom-up (Floyd's build-heap).
+     * The heap is unchanged if any entry is rejected.
+     * <p>
+     * Runtime: O(min(k log n, n)) for k entries
+     *
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    @Override
+    public void addAll(Collection<? extends Entry<Key, V>> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException("null entries");
+        }
+        int start = size;
+        ensureCapacity(start + entries.size());
+        //append everything and fill in the tracker in one pass
+        int end = HeapArrays.append(entries, keys, values, tracker, start);
+
+        if (rebuildCheaper(start, end - start)) {
+            size = end;
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                minHeapify(i, key(i), value(i));
+            }
+        } else {
+            //sifting up only touches ancestors, so entries not yet in the heap can wait in place
+            while (size < end) {
+                siftUp(size, key(size), value(size));
+                size++;
+            }
+        }
+    }
 
+    /**
+     * A bottom-up build takes fewer than 2 comparisons per element of the whole heap, while each
+     * insert takes up to one per level.
+     */
+    private static boolean rebuildCheaper(int existing, int added) {
+        int total = existing + added;
+        int levels = 32 - Integer.numberOfLeadingZeros(total);
+        return (long) added * levels > 2L * total;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            capacity = Math.max(capacity, 2 * keys.length);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
         }
     }
 
@@ -62,33 +128,30 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
     @Override
     public void decreaseKey(V value, Key newKey) {
         //if the newer key is greater than the current key
-        if (!containsValue(value)) {
+        int i = tracker.get(value);
+        if (i < 0) {
             throw new NoSuchElementException("can not find value");
-        } else if (newKey == null || newKey.compareTo(entries.get(entries.size() - 1).key) > 0) {
+        } else if (newKey == null || newKey.compareTo(key(i)) > 0) {
             throw new IllegalArgumentException("given key too big");
         } else {
-            int i = tracker.get(value);
-            if (i == 0) {
-                entries.set(i, new Entry<Key, V>(newKey, value));
-                return;
-            }
-            //if parent node is greater than child node, switch positions to keep minHeap
-            //switch values of map HashMap, too
-            while (i > 0 && (entries.get((i - 1) / 2).key.compareTo(newKey) == 1)) {
-                tracker.replace(value, i, (i - 1) / 2);
-                tracker.replace(entries.get((i - 1) / 2).value, (i - 1) / 2, i);
-                Entry<Key, V> sub = entries.get((i - 1) / 2);
-                Entry<Key, V> updated = new Entry<>(newKey, value);
-
-                entries.set((i - 1) / 2, updated);
-                entries.set(i, sub);
-
-                i = (i - 1) / 2;
-            }
-            Entry<Key, V> updated = new Entry<>(newKey, value);
-            entries.set(i, updated);
+            siftUp(i, newKey, value);
+        }
+    }
 
+    /**
+     * Moves the hole at i up while the parent is greater than key, then drops the entry in.
+     */
+    private void siftUp(int i, Key key, V value) {
+        while (i > 0 && key((i - 1) / 2).compareTo(key) > 0) {
+            int parent = (i - 1) / 2;
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            tracker.put(value(i), i);
+            i = parent;
         }
+        keys[i] = key;
+        values[i] = value;
+        tracker.put(value, i);
     }
 
     /**
@@ -96,10 +159,10 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
      */
     @Override
     public Entry<Key, V> peek() {
-        if (entries.size() < 1) {
+        if (size < 1) {
             throw new NoSuchElementException("heap empty");
         }
-        return entries.get(0);
+        return new Entry<>(key(0), value(0));
     }
 
     /**
@@ -107,51 +170,53 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
      */
     @Override
     public Entry<Key, V> extractMin() {
-        if (entries.size() < 1) {
+        if (size < 1) {
             throw new NoSuchElementException("size too small");
         } else {
-            Entry<Key, V> min = entries.get(0);
+            Entry<Key, V> min = new Entry<>(key(0), value(0));
             tracker.remove(min.value);
-            entries.set(0, entries.get(entries.size() - 1));
-
-            entries.remove(entries.size() - 1);
-            if (entries.size() == 0) {
-                return min;
-            } else {
+            size--;
+            Key lastKey = key(size);
+            V lastValue = value(size);
+            keys[size] = null;
+            values[size] = null;
+            if (size > 0) {
                 //always minheapify 0 since that's where we removed the min
-                minHeapify(0);
-                return min;
+                minHeapify(0, lastKey, lastValue);
             }
-
+            return min;
         }
     }
 
-    private void minHeapify(int i) {
-        //find the key of the left child and right child
-
-        Entry<Key, V> curr = entries.get(i);
-        int l = 2 * i + 1;
-        int r = 2 * i + 2;
-
-        int min;
-
-        if (l < entries.size() && (entries.get(l).key.compareTo(curr.key) < 0)) {
-            min = l;
-        } else {
-            min = i;
-        }
-        Entry<Key, V> curr1 = entries.get(min);
-        if (r < entries.size() && (entries.get(r).key.compareTo(curr1.key) < 0)) {
-            min = r;
+    /**
+     * Moves the hole at i down past every child smaller than key, preferring the left child
+     * unless the right one is strictly smaller, then drops the entry in.
+     */
+    private void minHeapify(int i, Key key, V value) {
+        int l;
+        while ((l = 2 * i + 1) < size) {
+            int min = l + 1 < size && key(l + 1).compareTo(key(l)) < 0 ? l + 1 : l;
+            if (key(min).compareTo(key) >= 0) {
+                break;
+            }
+            keys[i] = keys[min];
+            values[i] = values[min];
+            tracker.put(value(i), i);
+            i = min;
         }
-        if (min != i) {
-            entries.set(i, entries.get(min));
-            tracker.replace(entries.get(min).value, min, i);
-            entries.set(min, curr);
-            tracker.replace(curr.value, i, min);
+        keys[i] = key;
+        values[i] = value;
+        tracker.put(value, i);
+    }
 
-            minHeapify(min);
-        }
+    @SuppressWarnings("unchecked")
+    private Key key(int i) {
+        return (Key) keys[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int i) {
+        return (V) values[i];
     }
 
     /**
@@ -160,10 +225,10 @@ public class BinaryMinHeapImpl<Key extends Comparable<Key>, V> implements Binary
     @Override
     public Set<V> values() {
         Set<V> entrySet = new HashSet<>();
-        for (V key : tracker.keySet()) {
-            entrySet.add(key);
+        for (int i = 0; i < size; i++) {
+            entrySet.add(value(i));
         }
         return entrySet;
 
     }
-}
\ No newline at end of file
+}
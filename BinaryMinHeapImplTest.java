@@ -125,8 +125,36 @@ public class BinaryMinHeapImplTest {
         a.add(5, "c");
         a.add(2, "d");
 
-        a.decreaseKey("c", 5);
+        a.decreaseKey("c", 6);
+
+    }
+
+    //test decrease key - the new key is compared with the value's own key, not the last one
 
+    @Test (expected = IllegalArgumentException.class)
+    public void testDecreaseKeyAboveOwnKey() {
+        BinaryMinHeapImpl<Integer, String> a = new BinaryMinHeapImpl<>();
+        a.add(1, "b");
+        a.add(2, "c");
+        a.add(10, "d");
+
+        a.decreaseKey("c", 3);
+
+    }
+
+    @Test
+    public void testDecreaseKeyAboveLastKey() {
+        BinaryMinHeapImpl<Integer, String> a = new BinaryMinHeapImpl<>();
+        a.add(1, "b");
+        a.add(5, "c");
+        a.add(2, "d");
+
+        a.decreaseKey("c", 5);
+        a.decreaseKey("c", 4);
+        a.extractMin();
+        assertEquals(2, (int) a.extractMin().key);
+        assertEquals(4, (int) a.peek().key);
+        assertEquals("c", a.peek().value);
     }
 
     //test decrease key - check if updated key
@@ -311,4 +339,95 @@ public class BinaryMinHeapImplTest {
 
     }
 
+    //test growth past the initial capacity, with keys whose compareTo is not just -1, 0 or 1
+    @Test
+    public void testManyStringKeys() {
+        BinaryMinHeapImpl<String, Integer> a = new BinaryMinHeapImpl<>();
+        Random random = new Random(22);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String key = Integer.toString(random.nextInt(1 << 20), 36);
+            keys.add(key);
+            a.add(key, i);
+        }
+        a.decreaseKey(999, "");
+        keys.set(999, "");
+        Collections.sort(keys);
+        for (String key : keys) {
+            assertEquals(key, a.extractMin().key);
+        }
+        assertTrue(a.isEmpty());
+    }
+
+    //test heapify constructor - extracts in key order
+    @Test
+    public void testHeapifyConstructor() {
+        List<BinaryMinHeap.Entry<Integer, String>> entries = new ArrayList<>();
+        Random random = new Random(23);
+        for (int i = 0; i < 500; i++) {
+            entries.add(new BinaryMinHeap.Entry<>(random.nextInt(100), "v" + i));
+        }
+        BinaryMinHeapImpl<Integer, String> a = new BinaryMinHeapImpl<>(entries);
+        assertEquals(500, a.size());
+        assertTrue(a.containsValue("v499"));
+
+        a.decreaseKey("v250", -1);
+        assertEquals("v250", a.extractMin().value);
+        int previous = Integer.MIN_VALUE;
+        while (!a.isEmpty()) {
+            int key = a.extractMin().key;
+            assertTrue(previous <= key);
+            previous = key;
+        }
+    }
+
+    //test addAll - a few entries into a big heap and many entries into a small one
+    @Test
+    public void testAddAllNonEmpty() {
+        BinaryMinHeapImpl<Integer, String> a = new BinaryMinHeapImpl<>();
+        for (int i = 0; i < 100; i++) {
+            a.add(2 * i, "a" + i);
+        }
+        a.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(-1, "b"),
+                new BinaryMinHeap.Entry<>(51, "c")));
+        List<BinaryMinHeap.Entry<Integer, String>> many = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            many.add(new BinaryMinHeap.Entry<>(1000 - i, "d" + i));
+        }
+        a.addAll(many);
+        assertEquals(1102, a.size());
+
+        assertEquals("b", a.extractMin().value);
+        int previous = Integer.MIN_VALUE;
+        while (!a.isEmpty()) {
+            int key = a.extractMin().key;
+            assertTrue(previous <= key);
+            previous = key;
+        }
+    }
+
+    //test addAll - a repeated value is rejected and the heap is unchanged
+    @Test
+    public void testAddAllRepeatedValue() {
+        BinaryMinHeapImpl<Integer, String> a = new BinaryMinHeapImpl<>();
+        a.add(1, "b");
+        try {
+            a.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(0, "c"),
+                    new BinaryMinHeap.Entry<>(2, "c")));
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        assertEquals(1, a.size());
+        assertFalse(a.containsValue("c"));
+        assertEquals("b", a.peek().value);
+    }
+
+    //test addAll - null key IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testAddAllNullKey() {
+        BinaryMinHeapImpl<Integer, String> a = new BinaryMinHeapImpl<>();
+        a.addAll(Collections.singletonList(new BinaryMinHeap.Entry<>(null, "b")));
+    }
+
 }
@@ -0,0 +1,38 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Reads bits most significant bit first from a {@link ByteBuffer}, stopping after a fixed number
+ * of bits so that the zero padding of the final byte is never interpreted as data.
+ */
+class BitReader {
+    private final ByteBuffer in;
+    private long remaining;
+    private int current;
+    private int count;
+
+    BitReader(ByteBuffer in, long bitCount) {
+        this.in = in;
+        remaining = bitCount;
+    }
+
+    /**
+     * @return true if there are unread bits left
+     */
+    boolean hasNext() {
+        return remaining > 0;
+    }
+
+    /**
+     * @return the next bit, 0 or 1
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the bit count is reached
+     */
+    int readBit() {
+        if (count == 0) {
+            current = in.get();
+            count = 8;
+        }
+        remaining--;
+        count--;
+        return (current >>> count) & 1;
+    }
+}
@@ -0,0 +1,55 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Packs variable length codes into a {@link ByteBuffer}, most significant bit first. The final
+ * byte is padded with zero bits by {@link #flush()}, so the number of meaningful bits has to be
+ * recorded separately by the caller.
+ */
+class BitWriter {
+    private final ByteBuffer out;
+    //pending bits live in the low "count" bits of the accumulator
+    //count is always < 8 between calls
+    private long accumulator;
+    private int count;
+
+    BitWriter(ByteBuffer out) {
+        this.out = out;
+    }
+
+    /**
+     * Appends the low {@code length} bits of {@code bits}.
+     *
+     * @param bits   the code, right aligned
+     * @param length the number of bits to write, between 0 and 64
+     */
+    void write(long bits, int length) {
+        //keep the accumulator from overflowing by writing long codes in two halves
+        if (length > 56) {
+            write(bits >>> 32, length - 32);
+            length = 32;
+        }
+        accumulator = (accumulator << length) | (bits & ((1L << length) - 1));
+        count += length;
+        while (count >= 8) {
+            count -= 8;
+            out.put((byte) (accumulator >>> count));
+        }
+    }
+
+    /**
+     * @return the number of bits written but not yet put in the buffer, always less than 8
+     */
+    int pendingBits() {
+        return count;
+    }
+
+    /**
+     * Writes out the last partial byte, padded with zeroes.
+     */
+    void flush() {
+        if (count > 0) {
+            out.put((byte) (accumulator << (8 - count)));
+            count = 0;
+        }
+    }
+}
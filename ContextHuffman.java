@@ -0,0 +1,239 @@
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Order-1 context model: every character is coded with a table chosen by the character before
+ * it, so text where some characters predict the next one well compresses much further than with
+ * a single {@link Huffman} table.
+ * <p>
+ * Each context table is an escape model (see {@link Huffman#withEscape(Map, int)}) over the
+ * characters that followed that context in the seed. A character that never followed its context
+ * is written as the context's escape code followed by its code in an order-0 fallback model over
+ * the whole seed, which in turn escapes characters not in the seed as literals. The first
+ * character has no context and is coded with the fallback model directly.
+ * <p>
+ * Contexts seen fewer than minContextCount times share one table built from their combined
+ * counts, which saves memory without hurting much, since they are rare by definition.
+ * Instances are immutable and can be shared between threads.
+ */
+public class ContextHuffman {
+
+    private final Huffman fallback;
+    //tables indexed by (previous character - contextBase), null for contexts without their own
+    private final int contextBase;
+    private final Huffman[] tables;
+    //table of the rare and unseen contexts, or null to use the fallback model for them
+    private final Huffman shared;
+
+    /**
+     * Constructs a context model with one table per context seen in the seed.
+     *
+     * @param seed the String from which to build the encoding
+     * @throws IllegalArgumentException if seed is null or shorter than 2 characters
+     */
+    public ContextHuffman(String seed) {
+        this(seed, 1);
+    }
+
+    /**
+     * Constructs a context model, giving contexts their own table only if they occur at least
+     * minContextCount times in the seed.
+     *
+     * @param seed            the String from which to build the encoding
+     * @param minContextCount how often a context must occur to get its own table, at least 1
+     * @throws IllegalArgumentException if seed is null or shorter than 2 characters, or if
+     *                                  minContextCount is less than 1
+     */
+    public ContextHuffman(String seed, int minContextCount) {
+        if (seed == null || seed.length() < 2) {
+            throw new IllegalArgumentException("seed too short");
+        }
+        if (minContextCount < 1) {
+            throw new IllegalArgumentException("minContextCount must be at least 1");
+        }
+        fallback = Huffman.withEscape(seed, 0);
+
+        //followers of each context, and how often each context occurs
+        Map<Character, Map<Character, Integer>> followers = new TreeMap<>();
+        Map<Character, Integer> occurrences = new HashMap<>();
+        for (int i = 1; i < seed.length(); i++) {
+            char previous = seed.charAt(i - 1);
+            followers.computeIfAbsent(previous, p -> new HashMap<>())
+                    .merge(seed.charAt(i), 1, Integer::sum);
+            occurrences.merge(previous, 1, Integer::sum);
+        }
+
+        TreeMap<Character, Huffman> own = new TreeMap<>();
+        Map<Character, Integer> rare = new HashMap<>();
+        for (Map.Entry<Character, Map<Character, Integer>> context : followers.entrySet()) {
+            if (occurrences.get(context.getKey()) >= minContextCount) {
+                own.put(context.getKey(), Huffman.withEscape(context.getValue(), 0));
+            } else {
+                for (Map.Entry<Character, Integer> follower : context.getValue().entrySet()) {
+                    rare.merge(follower.getKey(), follower.getValue(), Integer::sum);
+                }
+            }
+        }
+        shared = rare.isEmpty() ? null : Huffman.withEscape(rare, 0);
+
+        if (own.isEmpty()) {
+            contextBase = 0;
+            tables = new Huffman[0];
+        } else {
+            contextBase = own.firstKey();
+            tables = new Huffman[own.lastKey() - contextBase + 1];
+            for (Map.Entry<Character, Huffman> entry : own.entrySet()) {
+                tables[entry.getKey() - contextBase] = entry.getValue();
+            }
+        }
+    }
+
+    /**
+     * @return the table for the given previous character, or null to use the fallback model
+     */
+    private Huffman tableFor(int previous) {
+        if (previous < 0) {
+            return null;
+        }
+        int index = previous - contextBase;
+        if (index >= 0 && index < tables.length && tables[index] != null) {
+            return tables[index];
+        }
+        return shared;
+    }
+
+    /**
+     * @return the number of bits needed to encode c after the given previous character
+     */
+    private long encodedLength(int previous, char c) {
+        Huffman table = tableFor(previous);
+        if (table == null) {
+            return fallback.encodedLength(c);
+        }
+        int index = table.indexOf(c);
+        if (index >= 0) {
+            return table.codeLength(index);
+        }
+        return table.escapeLength() + fallback.encodedLength(c);
+    }
+
+    private void write(int previous, char c, BitWriter writer) {
+        Huffman table = tableFor(previous);
+        if (table == null) {
+            fallback.write(c, writer);
+            return;
+        }
+        int index = table.indexOf(c);
+        if (index >= 0) {
+            writer.write(table.codeBits(index), table.codeLength(index));
+        } else {
+            writer.write(table.escapeBits(), table.escapeLength());
+            fallback.write(c, writer);
+        }
+    }
+
+    /**
+     * Compresses the input into the same layout as {@link Huffman#compressToBytes(CharSequence)}:
+     * the number of bits as a long followed by the bits, with the last byte padded with zeroes.
+     *
+     * @param input the characters to compress, can be empty
+     * @return the compressed input
+     * @throws IllegalArgumentException if the input is null or its compressed form does not fit
+     *                                  in a single array
+     */
+    public byte[] compress(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input in compress");
+        }
+        long bitCount = 0;
+        for (int i = 0; i < input.length(); i++) {
+            bitCount += encodedLength(i == 0 ? -1 : input.charAt(i - 1), input.charAt(i));
+        }
+        long size = Long.BYTES + (bitCount + 7) / 8;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("input too large");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putLong(bitCount);
+        BitWriter writer = new BitWriter(out);
+        for (int i = 0; i < input.length(); i++) {
+            write(i == 0 ? -1 : input.charAt(i - 1), input.charAt(i), writer);
+        }
+        writer.flush();
+        return out.array();
+    }
+
+    /**
+     * Decompresses the output of {@link #compress(CharSequence)}, starting at the buffer's
+     * position.
+     *
+     * @param input the buffer to read from, its position is advanced past the encoding
+     * @return the decoded characters
+     * @throws IllegalArgumentException if the input is null, truncated, or contains a sequence of
+     *                                  bits that is not decodable
+     */
+    public String decompress(ByteBuffer input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        if (input.remaining() < Long.BYTES) {
+            throw new IllegalArgumentException("missing bit count");
+        }
+        long bitCount = input.getLong();
+        if (bitCount < 0 || (bitCount + 7) / 8 > input.remaining()) {
+            throw new IllegalArgumentException("truncated input");
+        }
+
+        BitReader reader = new BitReader(input, bitCount);
+        StringBuilder str = new StringBuilder();
+        int previous = -1;
+        while (reader.hasNext()) {
+            Huffman table = tableFor(previous);
+            int c = table == null ? Huffman.ESCAPE : table.decodeSymbol(reader);
+            if (c == Huffman.ESCAPE) {
+                c = fallback.nextSymbol(reader);
+                if (c < 0) {
+                    throw new IllegalArgumentException("input ends after an escape code");
+                }
+            }
+            str.append((char) c);
+            previous = c;
+        }
+        return str.toString();
+    }
+
+    /**
+     * @return the number of contexts with a table of their own
+     */
+    public int contextCount() {
+        int count = 0;
+        for (Huffman table : tables) {
+            if (table != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Estimates the memory held by all tables of this model, see {@link Huffman#tableFootprint()},
+     * plus 4 bytes for each slot of the context index.
+     *
+     * @return the approximate size of the tables in bytes
+     */
+    public long tableFootprint() {
+        long bytes = Huffman.arrayBytes(tables.length, Integer.BYTES) + fallback.tableFootprint();
+        if (shared != null) {
+            bytes += shared.tableFootprint();
+        }
+        for (Huffman table : tables) {
+            if (table != null) {
+                bytes += table.tableFootprint();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class ContextHuffmanTest {
+
+    //text where each letter is almost always followed by the same one
+    private static String correlated(int length, long seed) {
+        String cycle = "the cat sat on a mat ";
+        Random random = new Random(seed);
+        StringBuilder str = new StringBuilder();
+        int at = 0;
+        while (str.length() < length) {
+            boolean jump = random.nextInt(20) == 0;
+            at = jump ? random.nextInt(cycle.length()) : (at + 1) % cycle.length();
+            str.append(cycle.charAt(at));
+        }
+        return str.toString();
+    }
+
+    //test compress - round trip
+    @Test
+    public void testRoundTrip() {
+        ContextHuffman model = new ContextHuffman(correlated(5000, 1));
+        String input = correlated(2000, 2);
+        assertEquals(input, model.decompress(ByteBuffer.wrap(model.compress(input))));
+    }
+
+    //test compress - correlated text beats a single table
+    @Test
+    public void testSmallerThanOrderZero() {
+        String seed = correlated(20000, 3);
+        String input = correlated(20000, 4);
+        int context = new ContextHuffman(seed).compress(input).length;
+        int orderZero = new Huffman(seed).compressToBytes(input).length;
+        assertTrue(context < orderZero * 2 / 3);
+    }
+
+    //test compress - unseen pairs and unseen characters escape
+    @Test
+    public void testEscape() {
+        ContextHuffman model = new ContextHuffman("abababab");
+        String input = "bbaaz\u00e9a";
+        assertEquals(input, model.decompress(ByteBuffer.wrap(model.compress(input))));
+        assertEquals(0, model.compress("").length - 8);
+    }
+
+    //test rare contexts - share one table, which costs less memory
+    @Test
+    public void testRareContexts() {
+        String seed = correlated(5000, 5) + "xyzzyqxqzy";
+        ContextHuffman all = new ContextHuffman(seed);
+        ContextHuffman clustered = new ContextHuffman(seed, 20);
+        assertTrue(clustered.contextCount() < all.contextCount());
+        assertTrue(clustered.tableFootprint() < all.tableFootprint());
+        String input = "xyq" + correlated(500, 6) + "zzy";
+        assertEquals(input, clustered.decompress(ByteBuffer.wrap(clustered.compress(input))));
+    }
+
+    //test footprint - counts the fallback model and every context table
+    @Test
+    public void testFootprint() {
+        ContextHuffman model = new ContextHuffman("aabb");
+        assertEquals(2, model.contextCount());
+        long tables = Huffman.withEscape("aabb", 0).tableFootprint()
+                + Huffman.withEscape("ab", 0).tableFootprint()
+                + Huffman.withEscape("b", 0).tableFootprint() + 16 + 4 * 2;
+        assertEquals(tables, model.tableFootprint());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testShortSeed() {
+        new ContextHuffman("a");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testMinContextCount() {
+        new ContextHuffman("abab", 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        ContextHuffman model = new ContextHuffman("abababab");
+        byte[] compressed = model.compress("abq");
+        compressed[7]--;
+        model.decompress(ByteBuffer.wrap(compressed));
+    }
+}
@@ -0,0 +1,258 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A min-heap in which every node has arity children instead of two. The tree is only
+ * log_arity(n) levels deep, so {@link #decreaseKey(Object, Comparable)} and {@link #add} move an
+ * element past fewer parents, and {@link #extractMin()} visits fewer levels. It compares more
+ * children per level, but these sit next to each other in the array, so for heaps larger than
+ * the cache it mostly trades cache misses for comparisons within a line.
+ * <p>
+ * Storage is the same as in {@link BinaryMinHeapImpl}: parallel arrays of keys and values, and
+ * a map from each value to its position for decreaseKey. With an arity of 2 the heap breaks ties
+ * exactly as {@link BinaryMinHeapImpl} does; in general a sift-down moves to the first of the
+ * smallest children.
+ *
+ * @param <V>   {@inheritDoc}
+ * @param <Key> {@inheritDoc}
+ */
+public class DaryMinHeapImpl<Key extends Comparable<Key>, V> implements BinaryMinHeap<Key, V> {
+    //the children of i are at (i << shift) + 1 to (i + 1) << shift
+    private final int shift;
+    private Object[] keys = new Object[16];
+    private Object[] values = new Object[16];
+    private int size;
+    private final PositionMap<V> tracker = new PositionMap<>();
+
+    /**
+     * Constructs an empty heap with an arity of 4.
+     */
+    public DaryMinHeapImpl() {
+        this(4);
+    }
+
+    /**
+     * Constructs an empty heap.
+     *
+     * @param arity the number of children of each node, 2, 4 or 8
+     * @throws IllegalArgumentException if arity is not 2, 4 or 8
+     */
+    public DaryMinHeapImpl(int arity) {
+        if (arity != 2 && arity != 4 && arity != 8) {
+            throw new IllegalArgumentException("arity must be 2, 4 or 8");
+        }
+        shift = Integer.numberOfTrailingZeros(arity);
+    }
+
+    /**
+     * @return the number of children of each node
+     */
+    public int arity() {
+        return 1 << shift;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(V value) {
+        return tracker.get(value) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(log n / log arity)
+     */
+    @Override
+    public void add(Key key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null");
+        }
+        if (containsValue(value)) {
+            throw new IllegalArgumentException("already contained value");
+        }
+        ensureCapacity(size + 1);
+        siftUp(size++, key, value);
+    }
+
+    /**
+     * Adds all entries, either by inserting them one at a time or by appending them and
+     * rebuilding the whole heap bottom-up, whichever takes fewer comparisons. The heap is
+     * unchanged if any entry is rejected.
+     *
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    @Override
+    public void addAll(Collection<? extends Entry<Key, V>> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException("null entries");
+        }
+        int start = size;
+        ensureCapacity(start + entries.size());
+        int end = HeapArrays.append(entries, keys, values, tracker, start);
+
+        //most nodes of a bottom-up build are near the leaves, so it still takes about 2
+        //comparisons per element, while an insert takes up to one per level
+        int levels = (32 - Integer.numberOfLeadingZeros(end) + shift - 1) / shift;
+        if ((long) (end - start) * levels > 2L * end) {
+            size = end;
+            for (int i = (size - 2) >> shift; i >= 0; i--) {
+                siftDown(i, key(i), value(i));
+            }
+        } else {
+            while (size < end) {
+                siftUp(size, key(size), value(size));
+                size++;
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            capacity = Math.max(capacity, 2 * keys.length);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(log n / log arity)
+     */
+    @Override
+    public void decreaseKey(V value, Key newKey) {
+        int i = tracker.get(value);
+        if (i < 0) {
+            throw new NoSuchElementException("can not find value");
+        }
+        if (newKey == null || newKey.compareTo(key(i)) > 0) {
+            throw new IllegalArgumentException("given key too big");
+        }
+        siftUp(i, newKey, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry<Key, V> peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("heap empty");
+        }
+        return new Entry<>(key(0), value(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(arity log n / log arity)
+     */
+    @Override
+    public Entry<Key, V> extractMin() {
+        if (size == 0) {
+            throw new NoSuchElementException("size too small");
+        }
+        Entry<Key, V> min = new Entry<>(key(0), value(0));
+        tracker.remove(min.value);
+        size--;
+        Key lastKey = key(size);
+        V lastValue = value(size);
+        keys[size] = null;
+        values[size] = null;
+        if (size > 0) {
+            siftDown(0, lastKey, lastValue);
+        }
+        return min;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<V> values() {
+        Set<V> set = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            set.add(value(i));
+        }
+        return set;
+    }
+
+    /**
+     * Moves the hole at i up while the parent is greater than key, then drops the entry in.
+     */
+    private void siftUp(int i, Key key, V value) {
+        while (i > 0) {
+            int parent = (i - 1) >> shift;
+            if (key(parent).compareTo(key) <= 0) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            tracker.put(value(i), i);
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+        tracker.put(value, i);
+    }
+
+    /**
+     * Moves the hole at i down to its first smallest child while that child is smaller than key,
+     * then drops the entry in.
+     */
+    private void siftDown(int i, Key key, V value) {
+        //comparing with the last parent keeps i << shift from overflowing
+        int lastParent = (size - 2) >> shift;
+        while (i <= lastParent) {
+            int first = (i << shift) + 1;
+            int last = Math.min(first + (1 << shift), size);
+            int min = first;
+            for (int c = first + 1; c < last; c++) {
+                if (key(c).compareTo(key(min)) < 0) {
+                    min = c;
+                }
+            }
+            if (key(min).compareTo(key) >= 0) {
+                break;
+            }
+            keys[i] = keys[min];
+            values[i] = values[min];
+            tracker.put(value(i), i);
+            i = min;
+        }
+        keys[i] = key;
+        values[i] = value;
+        tracker.put(value, i);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Key key(int i) {
+        return (Key) keys[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int i) {
+        return (V) values[i];
+    }
+}
@@ -0,0 +1,151 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class DaryMinHeapImplTest {
+
+    //test arity - only 2, 4 and 8
+    @Test (expected = IllegalArgumentException.class)
+    public void testInvalidArity() {
+        new DaryMinHeapImpl<Integer, String>(3);
+    }
+
+    //test default arity
+    @Test
+    public void testDefaultArity() {
+        DaryMinHeapImpl<Integer, String> a = new DaryMinHeapImpl<>();
+        assertEquals(4, a.arity());
+        assertTrue(a.isEmpty());
+    }
+
+    //test add - null key IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testAddNull() {
+        new DaryMinHeapImpl<Integer, String>().add(null, "b");
+    }
+
+    //test add - value is already in min heap IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testAddRepeatedValue() {
+        DaryMinHeapImpl<Integer, String> a = new DaryMinHeapImpl<>(8);
+        a.add(1, "b");
+        a.add(5, "b");
+    }
+
+    //test decrease Key - NoSuchElementException if value is not in heap
+    @Test (expected = NoSuchElementException.class)
+    public void testDecreaseKeyValueNotFound() {
+        DaryMinHeapImpl<Integer, String> a = new DaryMinHeapImpl<>();
+        a.add(1, "b");
+        a.decreaseKey("e", 0);
+    }
+
+    //test decrease Key - IllegalArgumentException if newKey > key(value)
+    @Test (expected = IllegalArgumentException.class)
+    public void testDecreaseKeyKeyTooBig() {
+        DaryMinHeapImpl<Integer, String> a = new DaryMinHeapImpl<>();
+        a.add(1, "b");
+        a.add(5, "c");
+        a.decreaseKey("b", 2);
+    }
+
+    //test extract min - empty = no such element
+    @Test (expected = NoSuchElementException.class)
+    public void testExtractMinEmpty() {
+        new DaryMinHeapImpl<Integer, String>(2).extractMin();
+    }
+
+    //test random adds, decreases and extracts against a sorted reference, for every arity
+    @Test
+    public void testRandomOperations() {
+        for (int arity = 2; arity <= 8; arity *= 2) {
+            Random random = new Random(24);
+            DaryMinHeapImpl<Integer, Integer> a = new DaryMinHeapImpl<>(arity);
+            Map<Integer, Integer> keys = new HashMap<>();
+            TreeSet<long[]> reference = new TreeSet<>((x, y) -> x[0] != y[0]
+                    ? Long.compare(x[0], y[0]) : Long.compare(x[1], y[1]));
+            for (int round = 0; round < 20000; round++) {
+                int op = random.nextInt(4);
+                if (op < 2 || keys.isEmpty()) {
+                    Integer value = round;
+                    Integer key = random.nextInt(1000);
+                    a.add(key, value);
+                    keys.put(value, key);
+                    reference.add(new long[] {key, value});
+                } else if (op == 2) {
+                    Integer value = keys.keySet().iterator().next();
+                    Integer key = keys.get(value) - random.nextInt(50);
+                    reference.remove(new long[] {keys.get(value), value});
+                    a.decreaseKey(value, key);
+                    keys.put(value, key);
+                    reference.add(new long[] {key, value});
+                } else {
+                    BinaryMinHeap.Entry<Integer, Integer> min = a.extractMin();
+                    assertEquals(reference.first()[0], (long) min.key);
+                    assertEquals(keys.remove(min.value), min.key);
+                    reference.remove(new long[] {min.key, min.value});
+                }
+                assertEquals(keys.size(), a.size());
+            }
+            assertEquals(keys.keySet(), a.values());
+        }
+    }
+
+    //test ties - arity 2 extracts in the same order as BinaryMinHeapImpl
+    @Test
+    public void testBinarySameOrderAsBinaryMinHeapImpl() {
+        Random random = new Random(24);
+        DaryMinHeapImpl<Integer, Integer> a = new DaryMinHeapImpl<>(2);
+        BinaryMinHeapImpl<Integer, Integer> b = new BinaryMinHeapImpl<>();
+        for (int round = 0; round < 20000; round++) {
+            if (random.nextInt(3) > 0 || b.isEmpty()) {
+                Integer key = random.nextInt(8);
+                Integer value = round;
+                a.add(key, value);
+                b.add(key, value);
+            } else {
+                assertEquals(b.extractMin().value, a.extractMin().value);
+            }
+        }
+    }
+
+    //test addAll - bulk build and inserts into a non-empty heap
+    @Test
+    public void testAddAll() {
+        DaryMinHeapImpl<Integer, String> a = new DaryMinHeapImpl<>(8);
+        List<BinaryMinHeap.Entry<Integer, String>> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(new BinaryMinHeap.Entry<>((i * 7919) % 1000, "v" + i));
+        }
+        a.addAll(entries);
+        a.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(-5, "x"),
+                new BinaryMinHeap.Entry<>(500, "y")));
+        assertEquals(1002, a.size());
+        assertEquals("x", a.extractMin().value);
+        int previous = Integer.MIN_VALUE;
+        while (!a.isEmpty()) {
+            int key = a.extractMin().key;
+            assertTrue(previous <= key);
+            previous = key;
+        }
+    }
+
+    //test addAll - a rejected entry leaves the heap unchanged and usable
+    @Test
+    public void testAddAllRollback() {
+        DaryMinHeapImpl<Integer, String> a = new DaryMinHeapImpl<>();
+        a.add(1, "b");
+        try {
+            a.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(0, "c"),
+                    new BinaryMinHeap.Entry<>(null, "d")));
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        assertEquals(1, a.size());
+        assertFalse(a.containsValue("c"));
+        a.add(0, "c");
+        assertEquals("c", a.extractMin().value);
+        assertEquals("b", a.extractMin().value);
+    }
+}
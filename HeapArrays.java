@@ -0,0 +1,44 @@
+import java.util.Collection;
+
+/**
+ * Steps shared by the heaps that keep their keys and values in parallel arrays, next to a {@link
+ * PositionMap} from each value to its position.
+ */
+final class HeapArrays {
+
+    private HeapArrays() {
+    }
+
+    /**
+     * Appends entries to the key and value arrays of a heap, starting at position start, and maps
+     * each value to its position. If an entry has a null key or a value that is already mapped,
+     * the appended entries are taken out again, so the arrays and the map are left as they were.
+     * The arrays must have room for all entries.
+     *
+     * @return the position after the last appended entry
+     * @throws IllegalArgumentException if an entry is null, has a null key, or has a value that
+     *                                  is already in the heap or occurs twice in entries
+     */
+    static <Key, V> int append(Collection<? extends BinaryMinHeap.Entry<Key, V>> entries,
+                               Object[] keys, Object[] values, PositionMap<V> positions,
+                               int start) {
+        positions.ensureCapacity(positions.size() + entries.size());
+        int end = start;
+        for (BinaryMinHeap.Entry<Key, V> entry : entries) {
+            if (entry == null || entry.key == null || positions.get(entry.value) >= 0) {
+                for (int i = start; i < end; i++) {
+                    positions.remove(values[i]);
+                    keys[i] = null;
+                    values[i] = null;
+                }
+                throw new IllegalArgumentException(entry == null || entry.key == null
+                        ? "key is null" : "already contained value");
+            }
+            keys[end] = entry.key;
+            values[end] = entry.value;
+            positions.put(entry.value, end);
+            end++;
+        }
+        return end;
+    }
+}
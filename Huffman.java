@@ -1,6 +1,12 @@
-
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Implements construction, encoding, and decoding logic of the Huffman coding algorithm. Characters
@@ -10,7 +16,7 @@ import java.util.Map;
  */
 public class Huffman {
 
-    public class Node {
+    public static class Node {
         private Character c;
         private int freq;
         private Node lNode;
@@ -41,106 +47,864 @@ public class Huffman {
      * @throws IllegalArgumentException seed is null, seed is empty, or resulting alphabet only has
      *                                  1 character
      */
-    private BinaryMinHeapImpl<Integer, Node> pq = new BinaryMinHeapImpl<>();
-    Node root;
-    private int inputLength;
-    private int outputLength;
-    private boolean isCompressed = false;
-    private StringBuilder expectedInput = new StringBuilder();
-    private HashMap<Character, Integer> encodingLength = new HashMap<>();
+    //tree in breadth-first order with the root at 0. A node is a leaf when left[node] is 0, since
+    //the root is nobody's child. Only models built from a tree have one, canonical models decode
+    //from their code lengths.
+    private final int[] left;
+    private final int[] right;
+    private final char[] symbol;
+    //everything except the statistics is final and the arrays are never written after
+    //construction, so any number of threads can compress and decompress with a model however it
+    //was published
+    private final HuffmanStatistics statistics;
+    //frequency-weighted average code length, computed once at construction
+    private final double expectedLength;
+    //code table indexed by (symbol - symbolBase), a length of 0 means not in the alphabet
+    private final int symbolBase;
+    private final long[] codeBits;
+    private final int[] codeLength;
+    //canonical models only: symbols ordered by (code length, symbol), and for each code length its
+    //first code and the position of its first symbol in that order
+    private final int[] canonicalSymbols;
+    private final long[] firstCode;
+    private final int[] firstSymbol;
+    //escape models only: the code written before characters without a code of their own, each of
+    //which then follows as a raw literal. A length of 0 means the model has no escape code.
+    private final int escapeLength;
+    private final long escapeBits;
+    /**
+     * The symbol decoders produce for the escape code, one past the largest character.
+     */
+    static final int ESCAPE = Character.MAX_VALUE + 1;
+    /**
+     * The size of the literal following the escape code.
+     */
+    static final int LITERAL_BITS = Character.SIZE;
+    //codeLengths uses a counting sort while the largest frequency is at most this many times the
+    //number of symbols (plus a constant for small alphabets), which keeps the sort linear
+    private static final int COUNTING_SORT_FACTOR = 8;
+    private static final int COUNTING_SORT_MIN = 1 << 12;
+    //length-limited models only, bits per symbol lost to the limit
+    private final double lengthLimitIncrease;
     public Huffman(String seed) {
+        this(seedTables(seed));
+    }
+
+    private static Tables seedTables(String seed) {
         if (seed == null || seed.isEmpty()) {
             throw new IllegalArgumentException();
         }
-        expectedInput.append(seed);
 
-        //check if string has only 1 letter
-        boolean sameChar = true;
-        for (int i = 1; i < seed.length(); i++) {
-            if (seed.charAt(i) != seed.charAt(0)) {
-                sameChar = false;
+        //leaves go in in the iteration order of the seed's frequency map, which decides between
+        //equally frequent nodes and so fixes the codes of every model built from a seed
+        Map<Character, Integer> frequencies = seedFrequencies(seed);
+        if (frequencies.size() < 2) {
+            throw new IllegalArgumentException("one char");
+        }
+        //one add per leaf rather than a bottom-up build: the heap layout decides which of several
+        //equally frequent nodes comes out first, and a bottom-up build lays the same leaves out
+        //differently, which would change the codes of existing models
+        IntKeyMinHeap<Node> pq = new IntKeyMinHeap<>(frequencies.size());
+        for (Map.Entry<Character, Integer> entry : frequencies.entrySet()) {
+            pq.add((int) entry.getValue(), new Node(entry.getKey(), entry.getValue(), null, null));
+        }
+
+        Tables tables = buildCodeTable(makePriorityQueue(pq));
+        weighCodeLengths(tables, frequencies);
+        return tables;
+    }
+
+    /**
+     * Constructs a {@code Huffman} instance from a frequency map of the input alphabet.
+     * <p/>
+     * Do NOT modify this constructor header.
+     *
+     * @param alphabet a frequency map for characters in the alphabet
+     * @throws IllegalArgumentException if the alphabet is null, empty, has fewer than 2 characters,
+     *                                  or has any non-positive frequencies
+     */
+    public Huffman(Map<Character, Integer> alphabet) {
+        this(alphabetTables(alphabet));
+    }
+
+    private static Tables alphabetTables(Map<Character, Integer> alphabet) {
+        if (alphabet == null || alphabet.isEmpty() || alphabet.size() < 2) {
+            throw new IllegalArgumentException();
+        }
+        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
+            if (entry.getValue() <= 0) {
+                throw new IllegalArgumentException("negative frequency");
             }
         }
-        if (sameChar) {
-            throw new IllegalArgumentException("one char");
+
+        //one add per leaf, for the same reason as in the seed constructor
+        IntKeyMinHeap<Node> pq = new IntKeyMinHeap<>(alphabet.size());
+        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
+            pq.add(entry.getValue(), new Node(entry.getKey(), entry.getValue(), null, null));
         }
 
-        Map<Character, Integer> map = new HashMap<>();
-        for (int i = 0; i < seed.length(); i++) {
-            if (map.containsKey(seed.charAt(i))) {
-                map.put(seed.charAt(i), map.get(seed.charAt(i)) + 1);
+        Tables tables = buildCodeTable(makePriorityQueue(pq));
+        weighCodeLengths(tables, alphabet);
+        return tables;
+    }
+
+    /**
+     * Creates a model from a seed string whose codes are canonical: they are fully determined by
+     * the code length of each symbol, so every JVM derives the same codes from the same seed and
+     * the model can be shipped with {@link #exportCodeLengths()}.
+     *
+     * @param seed the String from which to build the encoding
+     * @return the canonical model
+     * @throws IllegalArgumentException seed is null, seed is empty, or resulting alphabet only has
+     *                                  1 character
+     */
+    public static Huffman canonical(String seed) {
+        if (seed == null || seed.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        return canonical(HuffmanHistogram.of(seed).frequencies());
+    }
+
+    /**
+     * Creates a model from a frequency map whose codes are canonical, see {@link
+     * #canonical(String)}.
+     *
+     * @param alphabet a frequency map for characters in the alphabet
+     * @return the canonical model
+     * @throws IllegalArgumentException if the alphabet is null, empty, has fewer than 2 characters,
+     *                                  or has any non-positive frequencies
+     */
+    public static Huffman canonical(Map<Character, Integer> alphabet) {
+        char lowest = lowestSymbol(alphabet);
+        long[] frequencies = frequencyArray(alphabet, lowest);
+        return new Huffman(lowest, codeLengths(frequencies), frequencies);
+    }
+
+    /**
+     * Creates a canonical model over the 256 byte values from sample data. Bytes are treated as
+     * unsigned, so the code table is a plain 256 entry array indexed by the byte value.
+     *
+     * @param seed the bytes from which to build the encoding
+     * @return the byte model
+     * @throws IllegalArgumentException if seed is null or has fewer than 2 distinct bytes
+     */
+    public static Huffman forBytes(byte[] seed) {
+        if (seed == null) {
+            throw new IllegalArgumentException("null seed");
+        }
+        long[] histogram = new long[256];
+        for (byte b : seed) {
+            histogram[b & 0xFF]++;
+        }
+        return forBytes(histogram);
+    }
+
+    /**
+     * Creates a canonical model over the 256 byte values from a histogram, see {@link
+     * #forBytes(byte[])}.
+     *
+     * @param histogram the frequency of each unsigned byte value, 0 for bytes not in the alphabet
+     * @return the byte model
+     * @throws IllegalArgumentException if histogram is null, does not have 256 entries, has
+     *                                  negative entries, or has fewer than 2 non-zero entries
+     */
+    public static Huffman forBytes(long[] histogram) {
+        if (histogram == null || histogram.length != 256) {
+            throw new IllegalArgumentException("histogram must have 256 entries");
+        }
+        return new Huffman(0, codeLengths(histogram), histogram.clone());
+    }
+
+    /**
+     * Creates a canonical model from a seed string with an escape code, see {@link
+     * #withEscape(Map, int)}.
+     *
+     * @param seed          the String from which to build the encoding
+     * @param rareThreshold characters occurring fewer times than this are escaped
+     * @return the escape model
+     * @throws IllegalArgumentException if seed is null or empty, rareThreshold is negative, or no
+     *                                  character occurs at least rareThreshold times
+     */
+    public static Huffman withEscape(String seed, int rareThreshold) {
+        if (seed == null || seed.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        return withEscape(HuffmanHistogram.of(seed).frequencies(), rareThreshold);
+    }
+
+    /**
+     * Creates a canonical model with an escape code. Characters less frequent than rareThreshold
+     * get no code of their own, and neither do characters missing from the alphabet; both are
+     * compressed as the escape code followed by the character as a 16 bit literal. The escape code
+     * is weighted by the total frequency of the rare characters, and at least 1, so a long-lived
+     * model can encode any character and rare ones never cost more than the literal plus one code.
+     *
+     * @param alphabet      a frequency map for characters in the alphabet
+     * @param rareThreshold characters with a lower frequency are escaped, 0 keeps them all
+     * @return the escape model
+     * @throws IllegalArgumentException if the alphabet is null or empty, has any non-positive
+     *                                  frequencies, rareThreshold is negative, or no character has
+     *                                  a frequency of at least rareThreshold
+     */
+    public static Huffman withEscape(Map<Character, Integer> alphabet, int rareThreshold) {
+        if (alphabet == null || alphabet.isEmpty() || rareThreshold < 0) {
+            throw new IllegalArgumentException();
+        }
+        TreeMap<Character, Integer> kept = new TreeMap<>();
+        long escapeFrequency = 0;
+        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
+            if (entry.getValue() <= 0) {
+                throw new IllegalArgumentException("negative frequency");
+            }
+            if (entry.getValue() < rareThreshold) {
+                escapeFrequency += entry.getValue();
             } else {
-                map.put(seed.charAt(i), 1);
+                kept.put(entry.getKey(), entry.getValue());
             }
+        }
+        if (kept.isEmpty()) {
+            throw new IllegalArgumentException("every character is rare");
+        }
+
+        //the escape goes after the last character
+        char lowest = kept.firstKey();
+        long[] frequencies = frequencyArray(kept, lowest);
+        frequencies = Arrays.copyOf(frequencies, frequencies.length + 1);
+        frequencies[frequencies.length - 1] = Math.max(1, escapeFrequency);
+        return new Huffman(lowest, codeLengths(frequencies), frequencies, true);
+    }
 
+    /**
+     * @return the frequency of each character, indexed by character - lowest
+     */
+    private static long[] frequencyArray(Map<Character, Integer> alphabet, char lowest) {
+        long[] frequencies = new long[Collections.max(alphabet.keySet()) - lowest + 1];
+        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
+            frequencies[entry.getKey() - lowest] = entry.getValue();
         }
+        return frequencies;
+    }
 
-        for (Map.Entry<Character, Integer> entry : map.entrySet()) {
-            pq.add(entry.getValue(), new Node(entry.getKey(), entry.getValue(), null, null));
+    /**
+     * Computes Huffman code lengths in linear time after sorting. The leaves are sorted by
+     * frequency once, with a counting sort when the frequencies are small. Merged nodes are
+     * created in order of increasing weight, so they form a second sorted queue, and the two
+     * lightest nodes are always at the front of the two queues. On ties leaves are taken first,
+     * and leaves of equal frequency are taken by index, so the result is deterministic.
+     * <p>
+     * Without ties between frequencies or merged weights, the lengths are the same as those of the
+     * tree built with the heap in {@link #Huffman(Map)}. With ties the two may break them
+     * differently, so only the total cost is guaranteed to be the same: both codes are optimal.
+     * <p>
+     * The symbols are plain indices, so this also works for alphabets larger than a char.
+     *
+     * @param frequencies the frequency of each symbol, 0 for symbols not in the alphabet. The sum
+     *                    of all frequencies must fit in a long
+     * @return the code length of each symbol, 0 for symbols with frequency 0, and 1 if there is
+     *         only one symbol
+     * @throws IllegalArgumentException if frequencies is null or has negative entries
+     */
+    public static int[] codeLengths(long[] frequencies) {
+        if (frequencies == null) {
+            throw new IllegalArgumentException("null frequencies");
+        }
+        int n = 0;
+        long max = 0;
+        for (long frequency : frequencies) {
+            if (frequency < 0) {
+                throw new IllegalArgumentException("negative frequency");
+            }
+            if (frequency > 0) {
+                n++;
+                max = Math.max(max, frequency);
+            }
+        }
+        int[] lengths = new int[frequencies.length];
+        int[] order = sortByFrequency(frequencies, n, max);
+        if (n == 1) {
+            lengths[order[0]] = 1;
+        }
+        if (n < 2) {
+            return lengths;
         }
 
-        makePriorityQueue();
+        //nodes 0 to n - 1 are the leaves in sorted order, n to 2n - 2 the merged nodes
+        long[] merged = new long[n - 1];
+        int[] parent = new int[2 * n - 1];
+        int leaf = 0;
+        int front = 0;
+        for (int created = 0; created < n - 1; created++) {
+            long weight = 0;
+            for (int pick = 0; pick < 2; pick++) {
+                if (leaf < n && (front == created || frequencies[order[leaf]] <= merged[front])) {
+                    weight += frequencies[order[leaf]];
+                    parent[leaf++] = n + created;
+                } else {
+                    weight += merged[front];
+                    parent[n + front++] = n + created;
+                }
+            }
+            merged[created] = weight;
+        }
 
+        //parents are always created after their children, so one backwards pass finds the depths
+        int[] depth = new int[2 * n - 1];
+        for (int node = 2 * n - 3; node >= 0; node--) {
+            depth[node] = depth[parent[node]] + 1;
+        }
+        for (int i = 0; i < n; i++) {
+            lengths[order[i]] = depth[i];
+        }
+        return lengths;
+    }
 
+    /**
+     * @return the indices of the n non-zero frequencies, sorted by frequency and then by index
+     */
+    private static int[] sortByFrequency(long[] frequencies, int n, long max) {
+        int[] order = new int[n];
+        if (max <= COUNTING_SORT_MIN + (long) COUNTING_SORT_FACTOR * n) {
+            int[] start = new int[(int) max + 2];
+            for (long frequency : frequencies) {
+                if (frequency > 0) {
+                    start[(int) frequency + 1]++;
+                }
+            }
+            for (int f = 1; f < start.length; f++) {
+                start[f] += start[f - 1];
+            }
+            for (int i = 0; i < frequencies.length; i++) {
+                if (frequencies[i] > 0) {
+                    order[start[(int) frequencies[i]]++] = i;
+                }
+            }
+        } else {
+            Integer[] boxed = new Integer[n];
+            int next = 0;
+            for (int i = 0; i < frequencies.length; i++) {
+                if (frequencies[i] > 0) {
+                    boxed[next++] = i;
+                }
+            }
+            //stable, so equal frequencies stay in index order
+            Arrays.sort(boxed, (x, y) -> Long.compare(frequencies[x], frequencies[y]));
+            for (int i = 0; i < n; i++) {
+                order[i] = boxed[i];
+            }
+        }
+        return order;
+    }
 
+    /**
+     * Counts the characters of a seed into a HashMap filled in order of first occurrence, which is
+     * how seeds have always been counted. {@link #Huffman(String)} adds its leaves in the
+     * iteration order of this map, and that order decides between equally frequent nodes, so it
+     * must not change or earlier output would no longer decode. The counting itself is done with
+     * {@link HuffmanHistogram}; the seed is then only scanned until every character has been
+     * seen once.
+     *
+     * @return the frequency of each character of the seed
+     */
+    static Map<Character, Integer> seedFrequencies(String seed) {
+        HuffmanHistogram histogram = HuffmanHistogram.of(seed);
+        char lowest = histogram.lowest();
+        long[] counts = histogram.counts();
+        int distinct = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                distinct++;
+            }
+        }
+        Map<Character, Integer> map = new HashMap<>();
+        for (int i = 0; map.size() < distinct; i++) {
+            char c = seed.charAt(i);
+            //a count is cleared once its character is in the map, so the map sees each once
+            if (counts[c - lowest] > 0) {
+                map.put(c, (int) counts[c - lowest]);
+                counts[c - lowest] = 0;
+            }
+        }
+        return map;
     }
 
     /**
-     * Constructs a {@code Huffman} instance from a frequency map of the input alphabet.
-     * <p/>
-     * Do NOT modify this constructor header.
+     * Constructs a canonical model from a frequency map whose codes are no longer than
+     * maxCodeLength bits. Code lengths are chosen with the package-merge algorithm, so among all
+     * codes obeying the limit this one has the smallest expected encoding length.
      *
-     * @param alphabet a frequency map for characters in the alphabet
+     * @param alphabet      a frequency map for characters in the alphabet
+     * @param maxCodeLength the longest code allowed, at least log2 of the alphabet size
      * @throws IllegalArgumentException if the alphabet is null, empty, has fewer than 2 characters,
-     *                                  or has any non-positive frequencies
+     *                                  or has any non-positive frequencies, or if maxCodeLength is
+     *                                  too short for the alphabet or longer than 63
      */
-    public Huffman(Map<Character, Integer> alphabet) {
+    public Huffman(Map<Character, Integer> alphabet, int maxCodeLength) {
+        this(lengthLimitedTables(alphabet, maxCodeLength));
+    }
 
+    private static Tables lengthLimitedTables(Map<Character, Integer> alphabet,
+                                              int maxCodeLength) {
+        char base = lowestSymbol(alphabet);
+        long[] frequencies = frequencyArray(alphabet, base);
+        Tables tables = canonicalTables(base, packageMerge(alphabet, maxCodeLength), frequencies,
+                false);
+        //compare against the unconstrained code lengths over the same frequencies
+        tables.lengthLimitIncrease = tables.expectedLength
+                - weighCodeLengths(codeLengths(frequencies), 0, frequencies);
+        return tables;
+    }
 
-        if (alphabet == null || alphabet.isEmpty() || alphabet.size() < 2) {
+    /**
+     * Checks a frequency map the same way {@link #Huffman(Map)} does.
+     *
+     * @return the smallest character in the alphabet
+     */
+    private static char lowestSymbol(Map<Character, Integer> alphabet) {
+        if (alphabet == null || alphabet.size() < 2) {
             throw new IllegalArgumentException();
         }
-        expectedInput = new StringBuilder();
+        char lowest = Character.MAX_VALUE;
         for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
             if (entry.getValue() <= 0) {
                 throw new IllegalArgumentException("negative frequency");
             }
-            expectedInput.append(entry.getKey());
+            lowest = (char) Math.min(lowest, entry.getKey());
         }
+        return lowest;
+    }
 
-        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
-            pq.add(entry.getValue(), new Node(entry.getKey(), entry.getValue(), null, null));
+    /**
+     * Computes optimal code lengths of at most maxCodeLength bits with the package-merge
+     * algorithm. Starting from the leaves sorted by weight, each of the maxCodeLength - 1 rounds
+     * pairs up adjacent items of the previous list into packages and merges them with the leaves.
+     * The cheapest 2n - 2 items of the last list are then selected, and every time a leaf is
+     * selected, directly or inside a package, its code gets one bit longer.
+     *
+     * @return the code length of each symbol, indexed by symbol - lowestSymbol(alphabet)
+     */
+    private static int[] packageMerge(Map<Character, Integer> alphabet, int maxCodeLength) {
+        char lowest = lowestSymbol(alphabet);
+        int n = alphabet.size();
+        if (maxCodeLength < 1 || maxCodeLength > 63 || (1L << maxCodeLength) < n) {
+            throw new IllegalArgumentException("code length limit too small for the alphabet");
         }
 
-        makePriorityQueue();
+        //leaves by weight, ties broken by symbol
+        TreeMap<Character, Integer> sorted = new TreeMap<>(alphabet);
+        char[] symbols = new char[n];
+        Character[] order = sorted.keySet().toArray(new Character[0]);
+        Arrays.sort(order, (x, y) -> Integer.compare(sorted.get(x), sorted.get(y)));
+        long[] leaves = new long[n];
+        for (int i = 0; i < n; i++) {
+            symbols[i] = order[i];
+            leaves[i] = sorted.get(order[i]);
+        }
 
+        //isLeaf[level][i] tells whether item i of that level's list is a leaf or a package
+        boolean[][] isLeaf = new boolean[maxCodeLength][];
+        long[] previous = leaves;
+        isLeaf[0] = new boolean[n];
+        Arrays.fill(isLeaf[0], true);
+        for (int level = 1; level < maxCodeLength; level++) {
+            int packages = previous.length / 2;
+            long[] current = new long[n + packages];
+            isLeaf[level] = new boolean[n + packages];
+            int leaf = 0;
+            int pack = 0;
+            for (int i = 0; i < current.length; i++) {
+                long packWeight = pack < packages
+                        ? previous[2 * pack] + previous[2 * pack + 1] : Long.MAX_VALUE;
+                if (leaf < n && leaves[leaf] <= packWeight) {
+                    current[i] = leaves[leaf++];
+                    isLeaf[level][i] = true;
+                } else {
+                    current[i] = packWeight;
+                    pack++;
+                }
+            }
+            previous = current;
+        }
 
+        int[] lengths = new int[sorted.lastKey() - lowest + 1];
+        int take = 2 * n - 2;
+        for (int level = maxCodeLength - 1; level >= 0; level--) {
+            //the leaves within a list are in weight order, so the selected ones are the lightest
+            int leavesTaken = 0;
+            for (int i = 0; i < take; i++) {
+                if (isLeaf[level][i]) {
+                    lengths[symbols[leavesTaken++] - lowest]++;
+                }
+            }
+            take = 2 * (take - leavesTaken);
+        }
+        return lengths;
+    }
 
+    /**
+     * Returns how many more bits per symbol, weighted by the construction frequencies, this model
+     * spends than an unconstrained Huffman code would because of its code length limit.
+     *
+     * @return the increase in expected encoding length, 0 for models built without a length limit
+     */
+    public double lengthLimitIncrease() {
+        return lengthLimitIncrease;
+    }
 
+    /**
+     * Constructs a canonical model from the code length of each symbol.
+     *
+     * @param base        the symbol at offset 0 of lengths
+     * @param lengths     the code length of each symbol, 0 for symbols not in the alphabet
+     * @param frequencies the frequency of each symbol indexed like lengths, or null if unknown,
+     *                    in which case all symbols are taken to be equally likely
+     * @throws IllegalArgumentException if fewer than 2 symbols have a code or the lengths do not
+     *                                  describe a prefix code
+     */
+    private Huffman(int base, int[] lengths, long[] frequencies) {
+        this(base, lengths, frequencies, false);
     }
 
-    private void makePriorityQueue() {
-        BinaryMinHeapImpl.Entry<Integer, Node> min1;
-        BinaryMinHeapImpl.Entry<Integer, Node> min2;
+    /**
+     * Constructs a canonical model from the code length of each symbol, where with escape the
+     * last entry of lengths and frequencies is the escape code rather than a character.
+     */
+    private Huffman(int base, int[] lengths, long[] frequencies, boolean escape) {
+        this(canonicalTables(base, lengths, frequencies, escape));
+    }
 
+    private static Tables canonicalTables(int base, int[] lengths, long[] frequencies,
+                                          boolean escape) {
+        if (escape && lengths[lengths.length - 1] == 0) {
+            throw new IllegalArgumentException("escape without a code");
+        }
+        int symbols = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] < 0 || lengths[i] > 63) {
+                throw new IllegalArgumentException("invalid code length");
+            }
+            if (lengths[i] > 0) {
+                symbols++;
+            }
+        }
+        if (symbols < 2) {
+            throw new IllegalArgumentException("fewer than 2 characters");
+        }
+        Tables tables = assignCanonicalCodes(base, lengths.clone(), escape);
+        if (frequencies == null) {
+            frequencies = new long[lengths.length];
+            for (int i = 0; i < lengths.length; i++) {
+                frequencies[i] = lengths[i] > 0 ? 1 : 0;
+            }
+        }
+        tables.expectedLength = weighCodeLengths(tables.codeLength, tables.escapeLength,
+                frequencies);
+        return tables;
+    }
 
+    /**
+     * The tables of a model while it is being built. The constructors copy them into the final
+     * fields of the model, whose values are then visible to every thread that sees the model.
+     */
+    private static final class Tables {
+        private int[] left;
+        private int[] right;
+        private char[] symbol;
+        private double expectedLength;
+        private int symbolBase;
+        private long[] codeBits;
+        private int[] codeLength;
+        private int[] canonicalSymbols;
+        private long[] firstCode;
+        private int[] firstSymbol;
+        private int escapeLength;
+        private long escapeBits;
+        private double lengthLimitIncrease;
+    }
+
+    private Huffman(Tables tables) {
+        statistics = new HuffmanStatistics();
+        left = tables.left;
+        right = tables.right;
+        symbol = tables.symbol;
+        expectedLength = tables.expectedLength;
+        symbolBase = tables.symbolBase;
+        codeBits = tables.codeBits;
+        codeLength = tables.codeLength;
+        canonicalSymbols = tables.canonicalSymbols;
+        firstCode = tables.firstCode;
+        firstSymbol = tables.firstSymbol;
+        lengthLimitIncrease = tables.lengthLimitIncrease;
+        escapeLength = tables.escapeLength;
+        escapeBits = tables.escapeBits;
+    }
+
+    /**
+     * Constructs a model sharing the tables of another, with its own statistics.
+     */
+    private Huffman(Huffman model) {
+        statistics = new HuffmanStatistics();
+        left = model.left;
+        right = model.right;
+        symbol = model.symbol;
+        expectedLength = model.expectedLength;
+        symbolBase = model.symbolBase;
+        codeBits = model.codeBits;
+        codeLength = model.codeLength;
+        canonicalSymbols = model.canonicalSymbols;
+        firstCode = model.firstCode;
+        firstSymbol = model.firstSymbol;
+        lengthLimitIncrease = model.lengthLimitIncrease;
+        escapeLength = model.escapeLength;
+        escapeBits = model.escapeBits;
+    }
+
+    /**
+     * Returns a model with the same codes as this one whose statistics start from zero. The
+     * tables are shared rather than copied, so this is cheap, and compressing with one of the two
+     * models does not show up in the statistics of the other.
+     *
+     * @return a model with the same codes and fresh statistics
+     */
+    public Huffman withNewStatistics() {
+        return new Huffman(this);
+    }
+
+    /**
+     * Computes the expected encoding length once from a frequency map, adding up the characters
+     * in the iteration order of the map. That is the order in which expectedEncodingLength has
+     * always added them up, so a model built from a seed reports the same value to the last bit.
+     */
+    private static void weighCodeLengths(Tables tables, Map<Character, Integer> frequencies) {
+        long total = 0;
+        for (int frequency : frequencies.values()) {
+            total += frequency;
+        }
+        double expectedLength = 0;
+        for (Map.Entry<Character, Integer> entry : frequencies.entrySet()) {
+            int bits = tables.codeLength[entry.getKey() - tables.symbolBase];
+            expectedLength += bits * (double) entry.getValue() / total;
+        }
+        tables.expectedLength = expectedLength;
+    }
+
+    /**
+     * Computes the expected encoding length from the frequency of each symbol, adding up the
+     * symbols in symbol order.
+     *
+     * @param codeLength   the code length of each symbol
+     * @param escapeLength the length of the escape code, whose frequency is the one past the end
+     *                     of codeLength, or 0 without an escape code
+     * @param frequencies  the frequency of each symbol, indexed like codeLength
+     * @return the expected number of bits per symbol
+     */
+    private static double weighCodeLengths(int[] codeLength, int escapeLength,
+                                           long[] frequencies) {
+        long total = 0;
+        for (long frequency : frequencies) {
+            total += frequency;
+        }
+        double expectedLength = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] > 0) {
+                //only an escape code is past the end of the table
+                int bits = i < codeLength.length ? codeLength[i] : escapeLength + LITERAL_BITS;
+                expectedLength += bits * (double) frequencies[i] / total;
+            }
+        }
+        return expectedLength;
+    }
+
+    private static Node makePriorityQueue(IntKeyMinHeap<Node> pq) {
         while (pq.size() > 2) {
-            min1 = pq.extractMin();
-            min2 = pq.extractMin();
+            int key1 = pq.peekKey();
+            Node min1 = pq.extractMinValue();
+            int key2 = pq.peekKey();
+            Node min2 = pq.extractMinValue();
+
+            pq.add(key1 + key2, new Node(key1 + key2, min1, min2));
+        }
+        int key1 = pq.peekKey();
+        Node min1 = pq.extractMinValue();
+        int key2 = pq.peekKey();
+        Node min2 = pq.extractMinValue();
+        return new Node(key1 + key2, min1, min2);
+
+    }
+
+
+
+    /**
+     * Lays the finished tree out in the flat arrays and builds the code table from them, so that
+     * encoding a symbol is a single lookup. The table is dense over the range of symbols in the
+     * alphabet, which doubles as the membership index for {@link #compress(String)}. The Node
+     * objects are not kept.
+     * <p>
+     * Frequencies are ints, so codes always fit in a long: a code of depth d needs a total weight
+     * of at least Fib(d + 2), which overflows an int well before d reaches 64.
+     */
+    private static Tables buildCodeTable(Node root) {
+        //breadth-first, children are numbered in the order they are queued
+        ArrayList<Node> order = new ArrayList<>();
+        order.add(root);
+        for (int i = 0; i < order.size(); i++) {
+            if (order.get(i).c == null) {
+                order.add(order.get(i).lNode);
+                order.add(order.get(i).rNode);
+            }
+        }
+        int[] left = new int[order.size()];
+        int[] right = new int[order.size()];
+        char[] symbol = new char[order.size()];
+        int next = 1;
+        int lowest = Character.MAX_VALUE;
+        int highest = Character.MIN_VALUE;
+        for (int i = 0; i < order.size(); i++) {
+            Node node = order.get(i);
+            if (node.c == null) {
+                left[i] = next++;
+                right[i] = next++;
+            } else {
+                symbol[i] = node.c;
+                lowest = Math.min(lowest, node.c);
+                highest = Math.max(highest, node.c);
+            }
+        }
+
+        //parents come before their children, so one forward pass assigns every code
+        long[] bits = new long[left.length];
+        int[] depth = new int[left.length];
+        int symbolBase = lowest;
+        long[] codeBits = new long[highest - lowest + 1];
+        int[] codeLength = new int[highest - lowest + 1];
+        for (int i = 0; i < left.length; i++) {
+            if (left[i] != 0) {
+                //left is 0, right is 1
+                bits[left[i]] = bits[i] << 1;
+                bits[right[i]] = (bits[i] << 1) | 1;
+                depth[left[i]] = depth[i] + 1;
+                depth[right[i]] = depth[i] + 1;
+            } else {
+                codeBits[symbol[i] - symbolBase] = bits[i];
+                codeLength[symbol[i] - symbolBase] = depth[i];
+            }
+        }
+        Tables tables = new Tables();
+        tables.left = left;
+        tables.right = right;
+        tables.symbol = symbol;
+        tables.symbolBase = symbolBase;
+        tables.codeBits = codeBits;
+        tables.codeLength = codeLength;
+        return tables;
+    }
+
+    /**
+     * Fills the code table and the decoding tables from code lengths alone. Codes of the same
+     * length are consecutive integers in symbol order, and each length continues from the code
+     * after the last one of the previous length. With escape the last length belongs to the escape
+     * code, which comes after every character of the same length.
+     */
+    private static Tables assignCanonicalCodes(int base, int[] lengths, boolean escape) {
+        int maxLength = 0;
+        for (int length : lengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        int[] lengthCount = new int[maxLength + 1];
+        for (int length : lengths) {
+            if (length > 0) {
+                lengthCount[length]++;
+            }
+        }
 
-            pq.add(min1.key + min2.key, new Node(min1.key + min2.key,
-                    min1.value, min2.value));
+        //Kraft inequality, every level can hold at most twice what was left open at the level above
+        long open = 1;
+        for (int length = 1; length <= maxLength; length++) {
+            open = Math.min(2 * open, Integer.MAX_VALUE) - lengthCount[length];
+            if (open < 0) {
+                throw new IllegalArgumentException("code lengths do not form a prefix code");
+            }
         }
-        if (pq.size() == 2) {
-            min1 = pq.extractMin();
-            min2 = pq.extractMin();
-            root = new Node(min1.key + min2.key, min1.value, min2.value);
-            pq.add(min1.key + min2.key, root);
+
+        long[] firstCode = new long[maxLength + 1];
+        int[] firstSymbol = new int[maxLength + 1];
+        long code = 0;
+        int position = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCount[length - 1]) << 1;
+            firstCode[length] = code;
+            firstSymbol[length] = position;
+            position += lengthCount[length];
+        }
+
+        Tables tables = new Tables();
+        tables.symbolBase = base;
+        long[] bits = new long[lengths.length];
+        int[] canonicalSymbols = new int[position];
+        int[] next = firstSymbol.clone();
+        for (int i = 0; i < lengths.length; i++) {
+            int length = lengths[i];
+            if (length > 0) {
+                bits[i] = firstCode[length] + (next[length] - firstSymbol[length]);
+                canonicalSymbols[next[length]++] = base + i;
+            }
         }
+        if (escape) {
+            int last = lengths.length - 1;
+            tables.escapeLength = lengths[last];
+            tables.escapeBits = bits[last];
+            //it was the last symbol placed with its length
+            canonicalSymbols[next[tables.escapeLength] - 1] = ESCAPE;
+            lengths = Arrays.copyOf(lengths, last);
+            bits = Arrays.copyOf(bits, last);
+        }
+        tables.canonicalSymbols = canonicalSymbols;
+        tables.firstCode = firstCode;
+        tables.firstSymbol = firstSymbol;
+        tables.codeLength = lengths;
+        tables.codeBits = bits;
+        return tables;
+    }
+
+    int symbolBase() {
+        return symbolBase;
+    }
+
+    /**
+     * @return the size of the code table, symbols are at offsets 0 to symbolRange() - 1
+     */
+    int symbolRange() {
+        return codeLength.length;
+    }
 
+    /**
+     * @return the code length of the symbol at the given table offset, 0 if not in the alphabet
+     */
+    int codeLength(int index) {
+        return codeLength[index];
     }
 
+    long codeBits(int index) {
+        return codeBits[index];
+    }
 
+    /**
+     * @return the length of the escape code, 0 if the model has none
+     */
+    int escapeLength() {
+        return escapeLength;
+    }
+
+    long escapeBits() {
+        return escapeBits;
+    }
+
+    /**
+     * @return the table offset of c, or -1 if c has no code of its own
+     */
+    int indexOf(char c) {
+        int index = c - symbolBase;
+        return index >= 0 && index < codeLength.length && codeLength[index] > 0 ? index : -1;
+    }
 
     /**
      * Compresses the input string.
@@ -154,57 +918,196 @@ public class Huffman {
         if (input == null) {
             throw new IllegalArgumentException("null input in compress");
         }
+        ByteBuffer packed = ByteBuffer.wrap(compressToBytes(input));
+        long bitCount = packed.getLong();
+        StringBuilder str = new StringBuilder((int) bitCount);
+        BitReader reader = new BitReader(packed, bitCount);
+        while (reader.hasNext()) {
+            str.append(reader.readBit() == 0 ? '0' : '1');
+        }
+        return str.toString();
+    }
 
-        //check if the characters are within the given alphabet
-        for (int i = 0; i < input.length(); i++) {
-            boolean validInput = false;
-            for (int j = 0; j < expectedInput.length(); j++) {
-                if (input.charAt(i) == expectedInput.charAt(j)) {
-                    validInput = true;
-                }
-            }
-            if (!validInput) {
-                throw new IllegalArgumentException();
-            }
+    /**
+     * Compresses the input into packed bits. The result starts with the number of encoded bits as
+     * a big-endian long, followed by the bits themselves, most significant bit first, with the
+     * last byte padded with zeroes.
+     *
+     * @param input the characters to compress, can be empty
+     * @return the packed encoding of the input
+     * @throws IllegalArgumentException if the input is null, contains characters that are not
+     *                                  compressible, or does not fit in a single array
+     */
+    public byte[] compressToBytes(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input in compress");
         }
+        long bitCount = encodedLength(input, 0, input.length());
+        ByteBuffer out = ByteBuffer.allocate(packedSize(bitCount));
+        writePacked(input, bitCount, out);
+        return out.array();
+    }
 
-        isCompressed = true;
+    /**
+     * Compresses the input into the given buffer using the same layout as
+     * {@link #compressToBytes(CharSequence)}, starting at the buffer's position.
+     *
+     * @param input  the characters to compress, can be empty
+     * @param output the buffer to write to, its position is advanced past the written bytes
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if the input or output is null, or the input contains
+     *                                  characters that are not compressible
+     * @throws BufferOverflowException  if the output does not have enough room, in which case
+     *                                  nothing is written
+     */
+    public int compress(CharSequence input, ByteBuffer output) {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("null input in compress");
+        }
+        long bitCount = encodedLength(input, 0, input.length());
+        int size = packedSize(bitCount);
+        if (output.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        writePacked(input, bitCount, output);
+        return size;
+    }
 
-        inputLength += input.length();
-        if (input.equals("")) {
-            return "";
-        } else {
-            StringBuilder str = new StringBuilder();
+    /**
+     * Compresses bytes using the same layout as {@link #compressToBytes(CharSequence)}. Each byte
+     * is encoded as the character with its unsigned value, so this is meant for models built with
+     * {@link #forBytes(byte[])}, but works with any model whose alphabet covers the input.
+     *
+     * @param input the bytes to compress, can be empty
+     * @return the bit count followed by the packed bits
+     * @throws IllegalArgumentException if the input is null or contains bytes that are not
+     *                                  compressible
+     */
+    public byte[] compressBytes(byte[] input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input in compress");
+        }
+        ByteBuffer out = ByteBuffer.allocate(packedSize(encodedLength(ByteBuffer.wrap(input))));
+        compressBytes(ByteBuffer.wrap(input), out);
+        return out.array();
+    }
 
-            for (int i = 0; i < input.length(); i++) {
-                //finds the corresponding bit through recursion
-                char c = input.charAt(i);
-                StringBuilder code = new StringBuilder();
-                encodeCharacter(root, c, code, str);
+    /**
+     * Compresses the bytes between the input's position and limit into the output, see {@link
+     * #compressBytes(byte[])}.
+     *
+     * @param input  the bytes to compress, its position is advanced to its limit
+     * @param output the buffer to write to, its position is advanced past the written bytes
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if the input or output is null, or the input contains bytes
+     *                                  that are not compressible
+     * @throws BufferOverflowException  if the output does not have enough room, in which case
+     *                                  nothing is written or consumed
+     */
+    public int compressBytes(ByteBuffer input, ByteBuffer output) {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("null input in compress");
+        }
+        long bitCount = encodedLength(input);
+        int size = packedSize(bitCount);
+        if (output.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        output.putLong(bitCount);
+        BitWriter writer = new BitWriter(output);
+        int count = input.remaining();
+        while (input.hasRemaining()) {
+            write(input.get() & 0xFF, writer);
+        }
+        writer.flush();
 
-            }
-            outputLength += str.length();
-            return str.toString();
+        statistics.record(count, Byte.SIZE, bitCount);
+        return size;
+    }
+
+    /**
+     * @return the number of bits needed to encode the bytes between the position and limit, which
+     *         are left unchanged
+     * @throws IllegalArgumentException if the input has bytes that are not in the alphabet
+     */
+    private long encodedLength(ByteBuffer input) {
+        long bitCount = 0;
+        for (int i = input.position(); i < input.limit(); i++) {
+            bitCount += encodedLength((char) (input.get(i) & 0xFF));
         }
+        return bitCount;
     }
 
-    private void encodeCharacter(Node node, char c, StringBuilder code, StringBuilder str) {
+    /**
+     * Does not touch the compression statistics, so block and stream encoders can call it without
+     * counting their input in them.
+     *
+     * @return the number of bits needed to encode input[start, end)
+     * @throws IllegalArgumentException if the input has characters that are not in the alphabet
+     *                                  and there is no escape code
+     */
+    long encodedLength(CharSequence input, int start, int end) {
+        long bitCount = 0;
+        for (int i = start; i < end; i++) {
+            bitCount += encodedLength(input.charAt(i));
+        }
+        return bitCount;
+    }
 
-        if (node != null && node.c != null && node.c.equals(c)) {
-            str.append(code);
+    /**
+     * @return the number of bits needed to encode c, including the literal if it is escaped
+     * @throws IllegalArgumentException if c is not in the alphabet and there is no escape code
+     */
+    int encodedLength(char c) {
+        //single table lookup per character, also checks it is within the given alphabet
+        int index = c - symbolBase;
+        if (index >= 0 && index < codeLength.length && codeLength[index] > 0) {
+            return codeLength[index];
+        }
+        if (escapeLength == 0) {
+            throw new IllegalArgumentException("character not in alphabet");
+        }
+        return escapeLength + LITERAL_BITS;
+    }
 
-        } else if (node != null && node.c == null) {
+    private static int packedSize(long bitCount) {
+        long size = Long.BYTES + (bitCount + 7) / 8;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("encoding too large for a single buffer");
+        }
+        return (int) size;
+    }
 
-            code.append("0");
-            encodeCharacter(node.lNode, c, code, str);
-            //appended a string, have to get rid of it if it doesn't work
-            code.deleteCharAt(code.length() - 1);
-            code.append("1");
-            encodeCharacter(node.rNode, c, code, str);
-            code.deleteCharAt(code.length() - 1);
+    /**
+     * Writes the codes of input[start, end), which must already have been checked with {@link
+     * #encodedLength(CharSequence, int, int)}. Like that method it leaves the statistics alone.
+     */
+    void encode(CharSequence input, int start, int end, BitWriter writer) {
+        for (int i = start; i < end; i++) {
+            write(input.charAt(i), writer);
+        }
+    }
 
+    /**
+     * Writes the code of c, or the escape code and c as a literal.
+     */
+    void write(int c, BitWriter writer) {
+        int index = c - symbolBase;
+        if (index >= 0 && index < codeLength.length && codeLength[index] > 0) {
+            writer.write(codeBits[index], codeLength[index]);
+        } else {
+            writer.write(escapeBits, escapeLength);
+            writer.write(c, LITERAL_BITS);
         }
+    }
 
+    private void writePacked(CharSequence input, long bitCount, ByteBuffer out) {
+        out.putLong(bitCount);
+        BitWriter writer = new BitWriter(out);
+        encode(input, 0, input.length(), writer);
+        writer.flush();
+
+        statistics.record(input.length(), Character.SIZE, bitCount);
     }
 
     /**
@@ -221,40 +1124,251 @@ public class Huffman {
         if (input == null) {
             throw new IllegalArgumentException("null input");
         }
+        ByteBuffer packed = ByteBuffer.allocate(packedSize(input.length()));
+        packed.putLong(input.length());
+        BitWriter writer = new BitWriter(packed);
         for (int i = 0; i < input.length(); i++) {
-            int a = input.charAt(i);
             if (input.charAt(i) != '0' && input.charAt(i) != '1') {
                 throw new IllegalArgumentException("char is not 0 or 1");
             }
+            writer.write(input.charAt(i) - '0', 1);
         }
+        writer.flush();
+        packed.flip();
+        return decompressFromBytes(packed);
+    }
 
-        if (input.equals("")) {
-            return "";
-        } else {
+    /**
+     * Decompresses packed bits in the layout produced by {@link #compressToBytes(CharSequence)},
+     * starting at the buffer's position.
+     *
+     * @param input the buffer to read from, its position is advanced past the encoding
+     * @return the decoded characters
+     * @throws IllegalArgumentException if the input is null, truncated, or contains a sequence of
+     *                                  bits that is not decodable
+     */
+    public String decompressFromBytes(ByteBuffer input) {
+        BitReader reader = packedReader(input);
+        StringBuilder str = new StringBuilder();
+        for (int c = nextSymbol(reader); c >= 0; c = nextSymbol(reader)) {
+            str.append((char) c);
+        }
+        return str.toString();
+    }
 
-            StringBuilder str = new StringBuilder();
-            Node current = root;
+    /**
+     * Decompresses bytes in the layout produced by {@link #compressBytes(byte[])}, starting at the
+     * buffer's position.
+     *
+     * @param input the buffer to read from, its position is advanced past the encoding
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the input is null, truncated, contains a sequence of
+     *                                  bits that is not decodable, or decodes to a character above
+     *                                  255
+     */
+    public byte[] decompressBytes(ByteBuffer input) {
+        BitReader reader = packedReader(input);
+        byte[] out = new byte[64];
+        int size = 0;
+        for (int c = nextSymbol(reader); c >= 0; c = nextSymbol(reader)) {
+            if (c > 0xFF) {
+                throw new IllegalArgumentException("character is not a byte");
+            }
+            if (size == out.length) {
+                out = Arrays.copyOf(out, 2 * size);
+            }
+            out[size++] = (byte) c;
+        }
+        return Arrays.copyOf(out, size);
+    }
 
-            for (int i = 0; i < input.length(); i++) {
-                char currChar = input.charAt(i);
-                if (currChar == '0') {
-                    current = current.lNode;
-                } else {
-                    current = current.rNode;
-                }
+    /**
+     * Reads the bit count in front of packed bits.
+     *
+     * @return a reader over the packed bits
+     */
+    private static BitReader packedReader(ByteBuffer input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        if (input.remaining() < Long.BYTES) {
+            throw new IllegalArgumentException("missing bit count");
+        }
+        long bitCount = input.getLong();
+        if (bitCount < 0 || (bitCount + 7) / 8 > input.remaining()) {
+            throw new IllegalArgumentException("truncated input");
+        }
+        return new BitReader(input, bitCount);
+    }
+
+    /**
+     * Decodes one symbol, reading the literal after an escape code.
+     *
+     * @return the next symbol, or -1 if the input ended cleanly after the previous one
+     */
+    int nextSymbol(BitReader reader) {
+        int symbol = decodeSymbol(reader);
+        return symbol == ESCAPE ? readLiteral(reader) : symbol;
+    }
 
-                if (current.c != null) {
-                    str.append(current.c);
-                    current = root;
+    /**
+     * Decodes one code, walking the tree or, for canonical models, using only the first code and
+     * first symbol of each code length: a code of a given length is complete once it falls within
+     * the range of codes assigned to that length.
+     *
+     * @return the next symbol, {@link #ESCAPE} for the escape code, or -1 if the input ended
+     *         cleanly after the previous code
+     */
+    int decodeSymbol(BitReader reader) {
+        if (!reader.hasNext()) {
+            return -1;
+        }
+        if (canonicalSymbols != null) {
+            long code = 0;
+            for (int length = 1; length < firstCode.length; length++) {
+                if (!reader.hasNext()) {
+                    throw new IllegalArgumentException("input ends inside a code");
+                }
+                code = (code << 1) | reader.readBit();
+                long offset = code - firstCode[length];
+                int end = length + 1 < firstSymbol.length ? firstSymbol[length + 1]
+                        : canonicalSymbols.length;
+                if (offset >= 0 && offset < end - firstSymbol[length]) {
+                    return canonicalSymbols[firstSymbol[length] + (int) offset];
                 }
             }
+            throw new IllegalArgumentException("bits do not match any code");
+        }
 
-            if (current != root) {
-                throw new IllegalArgumentException();
+        int current = 0;
+        do {
+            if (!reader.hasNext()) {
+                throw new IllegalArgumentException("input ends inside a code");
             }
+            current = reader.readBit() == 0 ? left[current] : right[current];
+        } while (left[current] != 0);
+        return symbol[current];
+    }
 
-            return str.toString();
+    private static int readLiteral(BitReader reader) {
+        int literal = 0;
+        for (int b = 0; b < LITERAL_BITS; b++) {
+            if (!reader.hasNext()) {
+                throw new IllegalArgumentException("input ends inside a literal");
+            }
+            literal = (literal << 1) | reader.readBit();
+        }
+        return literal;
+    }
 
+    /**
+     * Serializes a canonical model as its code lengths. Models are written either as one length
+     * byte per symbol between the smallest and largest symbol, or as (symbol, length) pairs for
+     * sparse alphabets, whichever is shorter. The length of an escape code is written last.
+     *
+     * @return the serialized model, readable by {@link #fromCodeLengths(ByteBuffer)}
+     * @throws IllegalStateException if this model was not built with canonical codes
+     */
+    public byte[] exportCodeLengths() {
+        if (canonicalSymbols == null) {
+            throw new IllegalStateException("not a canonical model");
+        }
+        int first = 0;
+        int last = codeLength.length - 1;
+        while (codeLength[first] == 0) {
+            first++;
+        }
+        while (codeLength[last] == 0) {
+            last--;
+        }
+        //the escape code is a trailing length byte, flagged in the layout byte
+        int escape = escapeLength > 0 ? 1 : 0;
+        int symbols = canonicalSymbols.length - escape;
+        int denseSize = 5 + (last - first + 1) + escape;
+        int sparseSize = 3 + 3 * symbols + escape;
+
+        ByteBuffer out = ByteBuffer.allocate(Math.min(denseSize, sparseSize));
+        if (denseSize <= sparseSize) {
+            out.put((byte) (escape << 1));
+            out.putChar((char) (symbolBase + first));
+            out.putChar((char) (symbolBase + last));
+            for (int i = first; i <= last; i++) {
+                out.put((byte) codeLength[i]);
+            }
+        } else {
+            out.put((byte) (1 | escape << 1));
+            out.putChar((char) (symbols - 1));
+            for (int i = 0; i < codeLength.length; i++) {
+                if (codeLength[i] > 0) {
+                    out.putChar((char) (symbolBase + i));
+                    out.put((byte) codeLength[i]);
+                }
+            }
+        }
+        if (escape > 0) {
+            out.put((byte) escapeLength);
+        }
+        return out.array();
+    }
+
+    /**
+     * Reads a model written by {@link #exportCodeLengths()}, starting at the buffer's position.
+     *
+     * @param model the serialized model, its position is advanced past the model
+     * @return a canonical model with the same codes as the exported one
+     * @throws IllegalArgumentException if the model is null, truncated, or its code lengths do not
+     *                                  describe a prefix code with at least 2 codes
+     */
+    public static Huffman fromCodeLengths(ByteBuffer model) {
+        if (model == null) {
+            throw new IllegalArgumentException("null model");
+        }
+        try {
+            int base;
+            byte layout = model.get();
+            boolean escape = (layout & 2) != 0;
+            int[] lengths;
+            if ((layout & ~2) == 0) {
+                char first = model.getChar();
+                char last = model.getChar();
+                if (last < first) {
+                    throw new IllegalArgumentException("invalid symbol range");
+                }
+                lengths = new int[last - first + 1];
+                for (int i = 0; i < lengths.length; i++) {
+                    lengths[i] = model.get();
+                }
+                base = first;
+            } else if ((layout & ~2) == 1) {
+                int count = model.getChar() + 1;
+                char[] symbols = new char[count];
+                int[] symbolLengths = new int[count];
+                int first = Character.MAX_VALUE;
+                int last = Character.MIN_VALUE;
+                for (int i = 0; i < count; i++) {
+                    symbols[i] = model.getChar();
+                    symbolLengths[i] = model.get();
+                    first = Math.min(first, symbols[i]);
+                    last = Math.max(last, symbols[i]);
+                }
+                lengths = new int[last - first + 1];
+                for (int i = 0; i < count; i++) {
+                    if (lengths[symbols[i] - first] != 0) {
+                        throw new IllegalArgumentException("repeated symbol");
+                    }
+                    lengths[symbols[i] - first] = symbolLengths[i];
+                }
+                base = first;
+            } else {
+                throw new IllegalArgumentException("unknown model layout");
+            }
+            if (escape) {
+                lengths = Arrays.copyOf(lengths, lengths.length + 1);
+                lengths[lengths.length - 1] = model.get();
+            }
+            return new Huffman(base, lengths, null, escape);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated model");
         }
     }
 
@@ -268,11 +1382,17 @@ public class Huffman {
      *                               calling this method
      */
     public double compressionRatio() {
-        if (!isCompressed) {
-            throw new IllegalStateException("compressed has not been called");
-        } else {
-            return (double)(outputLength) / (double)(inputLength * 16);
-        }
+        return statistics.compressionRatio();
+    }
+
+    /**
+     * Returns the running totals behind {@link #compressionRatio()}. They are safe to read while
+     * other threads compress with this model.
+     *
+     * @return the statistics of this model
+     */
+    public HuffmanStatistics statistics() {
+        return statistics;
     }
 
     /**
@@ -280,35 +1400,68 @@ public class Huffman {
      * objective function of the compression.
      * <p>
      * The expected encoding length is simply the sum of the length of the encoding of each
-     * character multiplied by the probability that character occurs.
+     * character multiplied by the probability that character occurs. Probabilities come from the
+     * seed or frequency map the model was built from; models read with {@link
+     * #fromCodeLengths(ByteBuffer)} carry no frequencies and treat all characters as equally
+     * likely. The value is computed once at construction and calling this method has no effect
+     * on {@link #compressionRatio()}.
      *
      * @return the expected encoding length of an arbitrary character in the alphabet
      */
     public double expectedEncodingLength() {
-        HashMap<Character, Integer> tracker = new HashMap<>();
-        //find numerator of probability
-        for (int i = 0; i < expectedInput.length(); i++) {
-            if (tracker.containsKey(expectedInput.charAt(i))) {
-                tracker.put(expectedInput.charAt(i),
-                        tracker.get(expectedInput.charAt(i)) + 1);
-            } else {
-                tracker.put(expectedInput.charAt(i), 1);
-            }
-            //find length of each character
-            encodingLength.put(expectedInput.charAt(i),
-                    compress(expectedInput.substring(i, i + 1)).length());
-        }
-
+        return expectedLength;
+    }
 
-        double denominator = expectedInput.length();
-        double total = 0;
-        for (char c : tracker.keySet()) {
-            total += (encodingLength.get(c) * (double) tracker.get(c) / denominator);
+    /**
+     * Estimates the memory held by the code and decoding tables, counting the contents of each
+     * array plus a 16 byte array header. The statistics and object headers are not counted.
+     *
+     * @return the approximate size of the tables in bytes
+     */
+    public long tableFootprint() {
+        long bytes = arrayBytes(codeBits.length, Long.BYTES)
+                + arrayBytes(codeLength.length, Integer.BYTES);
+        if (canonicalSymbols != null) {
+            bytes += arrayBytes(canonicalSymbols.length, Integer.BYTES)
+                    + arrayBytes(firstCode.length, Long.BYTES)
+                    + arrayBytes(firstSymbol.length, Integer.BYTES);
+        } else {
+            bytes += arrayBytes(left.length, Integer.BYTES)
+                    + arrayBytes(right.length, Integer.BYTES)
+                    + arrayBytes(symbol.length, Character.BYTES);
         }
+        return bytes;
+    }
 
-        return total;
-
+    static long arrayBytes(int length, int elementBytes) {
+        return 16 + (long) length * elementBytes;
+    }
 
+    /**
+     * Returns the code of a single character. Unlike {@link #compress(String)} this does not count
+     * towards {@link #compressionRatio()}.
+     *
+     * @param c the character to look up
+     * @return the code as a string of ones and zeroes, for escaped characters the escape code
+     *         followed by the literal
+     * @throws IllegalArgumentException if the character is not in the alphabet and there is no
+     *                                  escape code
+     */
+    public String encodingOf(char c) {
+        int index = c - symbolBase;
+        StringBuilder str = new StringBuilder(encodedLength(c));
+        if (index >= 0 && index < codeLength.length && codeLength[index] > 0) {
+            appendBits(str, codeBits[index], codeLength[index]);
+        } else {
+            appendBits(str, escapeBits, escapeLength);
+            appendBits(str, c, LITERAL_BITS);
+        }
+        return str.toString();
+    }
 
+    private static void appendBits(StringBuilder str, long bits, int length) {
+        for (int b = length - 1; b >= 0; b--) {
+            str.append(((bits >>> b) & 1) == 0 ? '0' : '1');
+        }
     }
 }
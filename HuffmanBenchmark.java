@@ -0,0 +1,56 @@
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Rough single-threaded decode throughput of the different decoders on random text.
+ * <p>
+ * Usage: {@code java HuffmanBenchmark [characters]}
+ */
+public class HuffmanBenchmark {
+    private static final String SEED = "the quick brown fox jumps over the lazy dog, "
+            + "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG. etaoin shrdlu etaoin";
+    private static final int ROUNDS = 7;
+
+    private interface Decode {
+        String run();
+    }
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        Random random = new Random(1);
+        StringBuilder input = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            input.append(SEED.charAt(random.nextInt(SEED.length())));
+        }
+        String text = input.toString();
+        Huffman model = new Huffman(SEED);
+
+        byte[] packed = model.compressToBytes(text);
+        HuffmanTableDecoder table = new HuffmanTableDecoder(model, 11);
+        HuffmanInterleavedCodec single = new HuffmanInterleavedCodec(model, 1);
+        HuffmanInterleavedCodec interleaved = new HuffmanInterleavedCodec(model, 4);
+        byte[] singleStream = single.compress(text);
+        byte[] fourStreams = interleaved.compress(text);
+
+        report("tree walk", text, () -> model.decompressFromBytes(ByteBuffer.wrap(packed)));
+        report("lookup table", text, () -> table.decompress(ByteBuffer.wrap(packed)));
+        report("interleaved x1", text, () -> single.decompress(ByteBuffer.wrap(singleStream)));
+        report("interleaved x4", text, () -> interleaved.decompress(ByteBuffer.wrap(fourStreams)));
+    }
+
+    /**
+     * Prints the best of several rounds in millions of characters per second.
+     */
+    private static void report(String name, String expected, Decode decode) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            String result = decode.run();
+            best = Math.min(best, System.nanoTime() - start);
+            if (!result.equals(expected)) {
+                throw new IllegalStateException(name + " decoded the wrong text");
+            }
+        }
+        System.out.printf("%-16s %8.1f Mchar/s%n", name, expected.length() * 1e3 / best);
+    }
+}
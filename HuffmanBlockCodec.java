@@ -0,0 +1,253 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compresses input in fixed-size blocks that are encoded and decoded in parallel on a fork-join
+ * pool. All blocks share one {@link Huffman} model, which encoding never modifies.
+ * <p>
+ * The output starts with the block size in characters (int), the total number of characters
+ * (long) and the number of blocks (int). Then comes the index, for each block the offset of its
+ * first bit from the end of the index and its length in bits (two longs). Each block starts on a
+ * byte boundary, so a block can be decoded without looking at any other.
+ * <p>
+ * With more than one stream, each block is split into that many interleaved bitstreams, laid
+ * out as the output of {@link HuffmanInterleavedCodec#compress(CharSequence)} for the block. Both
+ * sides must use the same number of streams.
+ */
+public class HuffmanBlockCodec {
+    /**
+     * The block size used when none is given.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+    //blocks per fork-join task below which the task stops splitting
+    private static final int BLOCKS_PER_TASK = 1;
+    private static final int LOOKUP_BITS = 11;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+
+    private final Huffman model;
+    //exactly one of the two, depending on whether blocks are interleaved
+    private final HuffmanTableDecoder decoder;
+    private final HuffmanInterleavedCodec interleaved;
+    private final int blockSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a codec with the default block size on the common pool.
+     *
+     * @param model the model to encode and decode with
+     * @throws IllegalArgumentException if model is null
+     */
+    public HuffmanBlockCodec(Huffman model) {
+        this(model, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param model     the model to encode and decode with
+     * @param blockSize the number of characters per block
+     * @param pool      the pool that runs the blocks
+     * @throws IllegalArgumentException if model or pool is null, or blockSize is not positive
+     */
+    public HuffmanBlockCodec(Huffman model, int blockSize, ForkJoinPool pool) {
+        this(model, blockSize, 1, pool);
+    }
+
+    /**
+     * @param model     the model to encode and decode with
+     * @param blockSize the number of characters per block
+     * @param streams   the number of interleaved streams per block between 1 and 16, 1 for a
+     *                  single plain stream
+     * @param pool      the pool that runs the blocks
+     * @throws IllegalArgumentException if model or pool is null, blockSize is not positive,
+     *                                  streams is out of range, or streams is more than 1 and
+     *                                  {@link HuffmanInterleavedCodec} does not support the model
+     */
+    public HuffmanBlockCodec(Huffman model, int blockSize, int streams, ForkJoinPool pool) {
+        if (model == null || pool == null) {
+            throw new IllegalArgumentException("null model or pool");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("block size must be positive");
+        }
+        this.model = model;
+        this.blockSize = blockSize;
+        this.pool = pool;
+        if (streams == 1) {
+            decoder = new HuffmanTableDecoder(model, LOOKUP_BITS);
+            interleaved = null;
+        } else {
+            decoder = null;
+            interleaved = new HuffmanInterleavedCodec(model, streams);
+        }
+    }
+
+    private interface BlockAction {
+        void run(int block);
+    }
+
+    /**
+     * Runs action for blocks [from, to) by splitting the range in halves.
+     */
+    private static class ForEachBlock extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final BlockAction action;
+
+        ForEachBlock(int from, int to, BlockAction action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BLOCKS_PER_TASK) {
+                for (int block = from; block < to; block++) {
+                    action.run(block);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ForEachBlock(from, middle, action),
+                        new ForEachBlock(middle, to, action));
+            }
+        }
+    }
+
+    /**
+     * Compresses the input block by block. The length of every block is measured in parallel
+     * first, so each block can then be written straight to its place in the output.
+     *
+     * @param input the characters to compress, can be empty
+     * @return the compressed blocks with their header and index
+     * @throws IllegalArgumentException if the input is null, contains characters that are not
+     *                                  compressible, or does not fit in a single array
+     */
+    public byte[] compress(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input in compress");
+        }
+        //rounded up without adding blockSize - 1 to the length, which could overflow
+        int blockCount = input.length() / blockSize + (input.length() % blockSize == 0 ? 0 : 1);
+        long[] bitLengths = new long[blockCount];
+        pool.invoke(new ForEachBlock(0, blockCount, block -> bitLengths[block] = interleaved == null
+                ? model.encodedLength(input, start(block), end(block, input.length()))
+                : 8 * interleaved.encodedSize(input, start(block), end(block, input.length()))));
+
+        long[] byteOffsets = new long[blockCount + 1];
+        byteOffsets[0] = HEADER_SIZE + (long) INDEX_ENTRY_SIZE * blockCount;
+        for (int block = 0; block < blockCount; block++) {
+            byteOffsets[block + 1] = byteOffsets[block] + (bitLengths[block] + 7) / 8;
+        }
+        if (byteOffsets[blockCount] > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("encoding too large for a single array");
+        }
+
+        byte[] output = new byte[(int) byteOffsets[blockCount]];
+        ByteBuffer header = ByteBuffer.wrap(output);
+        header.putInt(blockSize).putLong(input.length()).putInt(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            header.putLong(8 * (byteOffsets[block] - byteOffsets[0])).putLong(bitLengths[block]);
+        }
+
+        //blocks write to disjoint byte ranges of the same array
+        pool.invoke(new ForEachBlock(0, blockCount, block -> {
+            ByteBuffer out = ByteBuffer.wrap(output, (int) byteOffsets[block],
+                    (int) (byteOffsets[block + 1] - byteOffsets[block]));
+            if (interleaved != null) {
+                interleaved.encode(input, start(block), end(block, input.length()), out);
+                return;
+            }
+            BitWriter writer = new BitWriter(out);
+            model.encode(input, start(block), end(block, input.length()), writer);
+            writer.flush();
+        }));
+        return output;
+    }
+
+    /**
+     * Decompresses the output of {@link #compress(CharSequence)}, one block per task.
+     *
+     * @param input the compressed blocks, starting at the buffer's position
+     * @return the decoded characters
+     * @throws IllegalArgumentException if the input is null, truncated, was compressed with a
+     *                                  different block size, or contains bits that are not
+     *                                  decodable
+     */
+    public String decompress(ByteBuffer input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        ByteBuffer data = input.slice();
+        int blockCount;
+        long charCount;
+        long[] bitOffsets;
+        long[] bitLengths;
+        try {
+            if (data.getInt() != blockSize) {
+                throw new IllegalArgumentException("compressed with a different block size");
+            }
+            charCount = data.getLong();
+            blockCount = data.getInt();
+            if (charCount < 0 || charCount > Integer.MAX_VALUE - 8
+                    || blockCount != (charCount + blockSize - 1) / blockSize) {
+                throw new IllegalArgumentException("invalid header");
+            }
+            bitOffsets = new long[blockCount];
+            bitLengths = new long[blockCount];
+            for (int block = 0; block < blockCount; block++) {
+                bitOffsets[block] = data.getLong();
+                bitLengths[block] = data.getLong();
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated input");
+        }
+
+        int payload = data.position();
+        for (int block = 0; block < blockCount; block++) {
+            if (bitOffsets[block] < 0 || bitOffsets[block] % 8 != 0 || bitLengths[block] < 0
+                    || payload + bitOffsets[block] / 8 + (bitLengths[block] + 7) / 8
+                    > data.limit()) {
+                throw new IllegalArgumentException("truncated input");
+            }
+        }
+        int length = (int) charCount;
+        char[] output = new char[length];
+        pool.invoke(new ForEachBlock(0, blockCount, block -> {
+            ByteBuffer bits = data.duplicate();
+            bits.position(payload + (int) (bitOffsets[block] / 8));
+            int count = end(block, length) - start(block);
+            if (interleaved != null) {
+                bits.limit(bits.position() + (int) ((bitLengths[block] + 7) / 8));
+                String str = interleaved.decompress(bits);
+                if (str.length() != count) {
+                    throw new IllegalArgumentException("block does not match its length");
+                }
+                str.getChars(0, count, output, start(block));
+                return;
+            }
+            StringBuilder str = new StringBuilder(blockSize);
+            decoder.decode(bits, bitLengths[block], str);
+            if (str.length() != count) {
+                throw new IllegalArgumentException("block does not match its length");
+            }
+            str.getChars(0, count, output, start(block));
+        }));
+
+        input.position(input.position() + payload
+                + (blockCount == 0 ? 0 : (int) ((bitOffsets[blockCount - 1]
+                + bitLengths[blockCount - 1] + 7) / 8)));
+        return new String(output);
+    }
+
+    private int start(int block) {
+        return block * blockSize;
+    }
+
+    private int end(int block, int length) {
+        return (int) Math.min((long) (block + 1) * blockSize, length);
+    }
+}
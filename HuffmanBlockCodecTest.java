@@ -0,0 +1,118 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class HuffmanBlockCodecTest {
+
+    private static final String SEED = "the quick brown fox jumps over the lazy dog";
+
+    //test round trip - many blocks, last one partial
+    @Test
+    public void testRoundTrip() {
+        HuffmanBlockCodec codec = new HuffmanBlockCodec(new Huffman(SEED), 100,
+                new ForkJoinPool(4));
+        String input = TestInputs.randomInput(SEED, 10050, 1);
+        assertEquals(input, codec.decompress(ByteBuffer.wrap(codec.compress(input))));
+    }
+
+    //test compress - each block holds the same bits as compressing it alone
+    @Test
+    public void testBlocksMatchCompress() {
+        Huffman h1 = new Huffman(SEED);
+        HuffmanBlockCodec codec = new HuffmanBlockCodec(h1, 64, ForkJoinPool.commonPool());
+        String input = TestInputs.randomInput(SEED, 200, 2);
+        ByteBuffer blocks = ByteBuffer.wrap(codec.compress(input));
+        assertEquals(64, blocks.getInt());
+        assertEquals(200, blocks.getLong());
+        assertEquals(4, blocks.getInt());
+        int payload = blocks.position() + 4 * 16;
+        for (int block = 0; block < 4; block++) {
+            long offset = blocks.getLong();
+            long length = blocks.getLong();
+            String part = input.substring(64 * block, Math.min(64 * block + 64, 200));
+            ByteBuffer alone = ByteBuffer.wrap(h1.compressToBytes(part));
+            assertEquals(alone.getLong(), length);
+            ByteBuffer stored = ByteBuffer.wrap(blocks.array(), payload + (int) offset / 8,
+                    alone.remaining());
+            assertEquals(alone, stored);
+        }
+    }
+
+    //test round trip - interleaved blocks, each stored as the interleaved codec writes it
+    @Test
+    public void testInterleavedBlocks() {
+        Huffman h1 = new Huffman(SEED);
+        HuffmanBlockCodec codec = new HuffmanBlockCodec(h1, 64, 4, new ForkJoinPool(4));
+        String input = TestInputs.randomInput(SEED, 1000, 3);
+        byte[] compressed = codec.compress(input);
+        assertEquals(input, codec.decompress(ByteBuffer.wrap(compressed)));
+
+        ByteBuffer blocks = ByteBuffer.wrap(compressed);
+        blocks.position(16);
+        int payload = 16 + 16 * 16;
+        HuffmanInterleavedCodec interleaved = new HuffmanInterleavedCodec(h1, 4);
+        for (int block = 0; block < 16; block++) {
+            long offset = blocks.getLong();
+            long length = blocks.getLong();
+            String part = input.substring(64 * block, Math.min(64 * block + 64, 1000));
+            ByteBuffer alone = ByteBuffer.wrap(interleaved.compress(part));
+            assertEquals(8 * alone.remaining(), length);
+            ByteBuffer stored = ByteBuffer.wrap(compressed, payload + (int) offset / 8,
+                    alone.remaining());
+            assertEquals(alone, stored);
+        }
+    }
+
+    //test decompress - blocks interleaved with a different number of streams
+    @Test (expected = IllegalArgumentException.class)
+    public void testWrongStreams() {
+        Huffman h1 = new Huffman(SEED);
+        byte[] compressed = new HuffmanBlockCodec(h1, 64, 4, ForkJoinPool.commonPool())
+                .compress(TestInputs.randomInput(SEED, 200, 4));
+        new HuffmanBlockCodec(h1, 64, 2, ForkJoinPool.commonPool())
+                .decompress(ByteBuffer.wrap(compressed));
+    }
+
+    //test round trip - no input
+    @Test
+    public void testEmpty() {
+        HuffmanBlockCodec codec = new HuffmanBlockCodec(new Huffman(SEED));
+        byte[] compressed = codec.compress("");
+        assertEquals(16, compressed.length);
+        assertEquals("", codec.decompress(ByteBuffer.wrap(compressed)));
+    }
+
+    //test compress - character not in the alphabet in a later block
+    @Test (expected = IllegalArgumentException.class)
+    public void testNotInAlphabet() {
+        HuffmanBlockCodec codec = new HuffmanBlockCodec(new Huffman(SEED), 10,
+                ForkJoinPool.commonPool());
+        codec.compress(TestInputs.randomInput(SEED, 100, 3) + "!");
+    }
+
+    //test decompress - cut off in the last block
+    @Test (expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        HuffmanBlockCodec codec = new HuffmanBlockCodec(new Huffman(SEED), 10,
+                ForkJoinPool.commonPool());
+        byte[] compressed = codec.compress(TestInputs.randomInput(SEED, 100, 4));
+        codec.decompress(ByteBuffer.wrap(compressed, 0, compressed.length - 1));
+    }
+
+    //test decompress - different block size
+    @Test (expected = IllegalArgumentException.class)
+    public void testWrongBlockSize() {
+        Huffman h1 = new Huffman(SEED);
+        byte[] compressed = new HuffmanBlockCodec(h1, 10, ForkJoinPool.commonPool())
+                .compress(TestInputs.randomInput(SEED, 100, 5));
+        new HuffmanBlockCodec(h1, 20, ForkJoinPool.commonPool())
+                .decompress(ByteBuffer.wrap(compressed));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testZeroBlockSize() {
+        new HuffmanBlockCodec(new Huffman(SEED), 0, ForkJoinPool.commonPool());
+    }
+}
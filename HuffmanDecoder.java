@@ -0,0 +1,199 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads the frames written by {@link HuffmanEncoder} from a stream or channel and returns the
+ * decoded characters, holding only one bounded buffer of input at a time. The position within
+ * a code is kept between frames and between calls to {@link #read(char[], int, int)}.
+ */
+public class HuffmanDecoder extends Reader {
+    /**
+     * The buffer size used when none is given.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel in;
+    private final ByteBuffer buffer;
+    //child[2 * state + bit] is the next state, ~symbol for a complete code, or 0 if no code
+    //continues that way. State 0 is the start of a code.
+    private final int[] child;
+    private int state = 0;
+    //bits of an escaped literal still to come, and the ones read so far
+    private int literalBits = 0;
+    private int literal;
+    private long frameBits = 0;
+    private int current;
+    private int bitsInByte = 0;
+    private boolean ended = false;
+    private boolean closed = false;
+
+    /**
+     * @param model the model the input was encoded with
+     * @param in    the stream to read frames from
+     * @throws IllegalArgumentException if model or in is null
+     */
+    public HuffmanDecoder(Huffman model, InputStream in) {
+        this(model, in == null ? null : Channels.newChannel(in), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param model      the model the input was encoded with
+     * @param in         the channel to read frames from
+     * @param bufferSize the size in bytes of the input buffer, at least 16
+     * @throws IllegalArgumentException if model or in is null, or bufferSize is less than 16
+     */
+    public HuffmanDecoder(Huffman model, ReadableByteChannel in, int bufferSize) {
+        if (model == null || in == null) {
+            throw new IllegalArgumentException("null model or input");
+        }
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("buffer too small");
+        }
+        this.in = in;
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.flip();
+        child = buildStates(model);
+    }
+
+    /**
+     * Builds the state table kept in {@code child} for a model, see the comment there.
+     */
+    static int[] buildStates(Huffman model) {
+        int[] child = new int[16];
+        int states = 1;
+        //one past the table is the escape code
+        for (int i = 0; i <= model.symbolRange(); i++) {
+            boolean escape = i == model.symbolRange();
+            int length = escape ? model.escapeLength() : model.codeLength(i);
+            if (length == 0) {
+                continue;
+            }
+            long code = escape ? model.escapeBits() : model.codeBits(i);
+            int state = 0;
+            for (int b = length - 1; b > 0; b--) {
+                int slot = 2 * state + (int) ((code >>> b) & 1);
+                if (child[slot] == 0) {
+                    if (2 * states + 2 > child.length) {
+                        child = Arrays.copyOf(child, 2 * child.length);
+                    }
+                    child[slot] = states++;
+                }
+                state = child[slot];
+            }
+            int symbol = escape ? Huffman.ESCAPE : model.symbolBase() + i;
+            child[2 * state + (int) (code & 1)] = ~symbol;
+        }
+        return Arrays.copyOf(child, 2 * states);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws EOFException if the input ends before the end marker
+     * @throws IOException  if the input contains bits that are not decodable or reading fails
+     */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("decoder closed");
+        }
+        int count = 0;
+        while (count < len) {
+            if (frameBits == 0) {
+                //padding after the last code of a frame is never decoded
+                bitsInByte = 0;
+                if (ended || !nextFrame()) {
+                    break;
+                }
+            }
+            if (bitsInByte == 0) {
+                if (!fill(1)) {
+                    throw new EOFException("input ends inside a frame");
+                }
+                current = buffer.get();
+                bitsInByte = 8;
+            }
+            bitsInByte--;
+            frameBits--;
+            int bit = (current >>> bitsInByte) & 1;
+            if (literalBits > 0) {
+                literal = (literal << 1) | bit;
+                if (--literalBits == 0) {
+                    cbuf[off + count++] = (char) literal;
+                }
+                continue;
+            }
+            int next = child[2 * state + bit];
+            if (next == 0) {
+                throw new IOException("bits do not match any code");
+            } else if (next == ~Huffman.ESCAPE) {
+                literalBits = Huffman.LITERAL_BITS;
+                literal = 0;
+                state = 0;
+            } else if (next < 0) {
+                cbuf[off + count++] = (char) ~next;
+                state = 0;
+            } else {
+                state = next;
+            }
+        }
+        return count == 0 && len > 0 ? -1 : count;
+    }
+
+    /**
+     * Reads the next frame header.
+     *
+     * @return false if it was the end marker
+     */
+    private boolean nextFrame() throws IOException {
+        if (!fill(Integer.BYTES)) {
+            throw new EOFException("missing end marker");
+        }
+        frameBits = buffer.getInt() & 0xffffffffL;
+        if (frameBits == 0) {
+            ended = true;
+            if (state != 0 || literalBits != 0) {
+                throw new IOException("input ends inside a code");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads from the channel until at least n bytes are buffered.
+     *
+     * @return false if the channel ended first
+     */
+    private boolean fill(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return true;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < n) {
+                if (in.read(buffer) == -1) {
+                    return false;
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        in.close();
+    }
+}
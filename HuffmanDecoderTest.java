@@ -0,0 +1,79 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.util.*;
+
+public class HuffmanDecoderTest {
+
+    private static byte[] encode(Huffman model, String input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanEncoder encoder = new HuffmanEncoder(model, bytes);
+        encoder.write(input);
+        encoder.close();
+        return bytes.toByteArray();
+    }
+
+    //test read - small reads keep their place inside codes
+    @Test
+    public void testSingleCharReads() throws IOException {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        HuffmanDecoder decoder = new HuffmanDecoder(h1,
+                new ByteArrayInputStream(encode(h1, "abcdcba")));
+        StringBuilder out = new StringBuilder();
+        int c;
+        while ((c = decoder.read()) != -1) {
+            out.append((char) c);
+        }
+        assertEquals("abcdcba", out.toString());
+        assertEquals(-1, decoder.read());
+    }
+
+    //test read - stream cut off before the end marker
+    @Test (expected = EOFException.class)
+    public void testTruncated() throws IOException {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        byte[] encoded = encode(h1, "abcdcba");
+        HuffmanDecoder decoder = new HuffmanDecoder(h1,
+                new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 2)));
+        decoder.read(new char[100]);
+        decoder.read(new char[100]);
+    }
+
+    //test read - frame ending in the middle of a code
+    @Test (expected = IOException.class)
+    public void testEndsInsideCode() throws IOException {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        //one frame holding "1", half of "b", then the end marker
+        byte[] encoded = {0, 0, 0, 1, (byte) 0x80, 0, 0, 0, 0};
+        new HuffmanDecoder(h1, new ByteArrayInputStream(encoded)).read(new char[10]);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testNullModel() {
+        new HuffmanDecoder(null, new ByteArrayInputStream(new byte[0]));
+    }
+
+    //test read - escaped literals continue across frames
+    @Test
+    public void testEscape() throws IOException {
+        Huffman h1 = Huffman.withEscape("aaaaabbbbccd", 2);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("ab\u00e9cd".charAt(i % 5));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanEncoder encoder = new HuffmanEncoder(h1, Channels.newChannel(bytes), 16);
+        encoder.write(input.toString());
+        encoder.close();
+        HuffmanDecoder decoder = new HuffmanDecoder(h1,
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 16);
+        char[] out = new char[input.length() + 1];
+        int read = 0;
+        int n;
+        while ((n = decoder.read(out, read, out.length - read)) > 0) {
+            read += n;
+        }
+        assertEquals(input.toString(), new String(out, 0, read));
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Compresses characters written to it with an existing {@link Huffman} model and writes the bits
+ * to an output stream or channel, so the input never has to be held in memory as a whole.
+ * <p>
+ * The output is a sequence of frames, each an int giving its number of bits followed by the
+ * bits themselves, most significant bit first. Codes may continue from one frame into the next.
+ * Only the last frame before the end marker, a frame of 0 bits written by {@link #close()}, can
+ * end in a partial byte. {@link HuffmanDecoder} reads this format back.
+ */
+public class HuffmanEncoder extends Writer {
+    /**
+     * The buffer size used when none is given.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Huffman model;
+    private final WritableByteChannel out;
+    private final Flushable flushable;
+    //frame under construction, its header is filled in when the frame is written out
+    private final ByteBuffer buffer;
+    private final BitWriter bits;
+    private final char[] transferBuffer;
+    private boolean closed = false;
+
+    /**
+     * @param model the model to encode with
+     * @param out   the stream to write frames to
+     * @throws IllegalArgumentException if model or out is null
+     */
+    public HuffmanEncoder(Huffman model, OutputStream out) {
+        this(model, out == null ? null : Channels.newChannel(out), out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param model      the model to encode with
+     * @param out        the channel to write frames to
+     * @param bufferSize the size in bytes of the frame buffer, at least 16 and at most 2^28
+     * @throws IllegalArgumentException if model or out is null, or bufferSize is out of range
+     */
+    public HuffmanEncoder(Huffman model, WritableByteChannel out, int bufferSize) {
+        this(model, out, null, bufferSize);
+    }
+
+    private HuffmanEncoder(Huffman model, WritableByteChannel out, Flushable flushable,
+                           int bufferSize) {
+        if (model == null || out == null) {
+            throw new IllegalArgumentException("null model or output");
+        }
+        //the bit count of a full frame has to fit in the int header
+        if (bufferSize < 16 || bufferSize > (1 << 28)) {
+            throw new IllegalArgumentException("buffer size out of range");
+        }
+        this.model = model;
+        this.out = out;
+        this.flushable = flushable;
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.position(Integer.BYTES);
+        bits = new BitWriter(buffer);
+        transferBuffer = new char[Math.min(bufferSize, 8 * 1024)];
+    }
+
+    /**
+     * Encodes characters. If one of them is not in the model's alphabet, the characters before it
+     * have already been encoded when the exception is thrown.
+     *
+     * @throws IllegalArgumentException if a character is not in the model's alphabet
+     * @throws IOException              if writing to the output fails or the encoder is closed
+     */
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off; i < off + len; i++) {
+            encode(cbuf[i]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off; i < off + len; i++) {
+            encode(str.charAt(i));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        encode((char) c);
+    }
+
+    /**
+     * Encodes everything remaining in a reader, reusing one bounded buffer.
+     *
+     * @param in the characters to encode, not closed by this method
+     * @return the number of characters encoded
+     * @throws IllegalArgumentException if a character is not in the model's alphabet
+     * @throws IOException              if reading or writing fails
+     */
+    public long encode(Reader in) throws IOException {
+        ensureOpen();
+        long total = 0;
+        int read;
+        while ((read = in.read(transferBuffer)) != -1) {
+            write(transferBuffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    private void encode(char c) throws IOException {
+        int index = c - model.symbolBase();
+        boolean coded = index >= 0 && index < model.symbolRange() && model.codeLength(index) > 0;
+        if (!coded && model.escapeLength() == 0) {
+            throw new IllegalArgumentException("character not in alphabet");
+        }
+        //a code is at most 63 bits, so 8 free bytes always hold it
+        if (buffer.remaining() < 8) {
+            writeFrame();
+        }
+        if (coded) {
+            bits.write(model.codeBits(index), model.codeLength(index));
+        } else {
+            bits.write(model.escapeBits(), model.escapeLength());
+            if (buffer.remaining() < 8) {
+                writeFrame();
+            }
+            bits.write(c, Huffman.LITERAL_BITS);
+        }
+    }
+
+    /**
+     * Writes out the complete bytes of the current frame. Bits of an unfinished byte stay behind
+     * for the next frame.
+     */
+    private void writeFrame() throws IOException {
+        int bytes = buffer.position() - Integer.BYTES;
+        if (bytes > 0) {
+            writeFrame(8L * bytes);
+        }
+    }
+
+    private void writeFrame(long bitCount) throws IOException {
+        buffer.putInt(0, (int) bitCount);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+        buffer.position(Integer.BYTES);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("encoder closed");
+        }
+    }
+
+    /**
+     * Writes out all complete bytes encoded so far and flushes the underlying stream. Up to 7
+     * bits can remain buffered until more characters are written or the encoder is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeFrame();
+        if (flushable != null) {
+            flushable.flush();
+        }
+    }
+
+    /**
+     * Writes the remaining bits and the end marker, then closes the output.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        long bitCount = 8L * (buffer.position() - Integer.BYTES) + bits.pendingBits();
+        bits.flush();
+        if (bitCount > 0) {
+            writeFrame(bitCount);
+        }
+        writeFrame(0);
+        closed = true;
+        out.close();
+    }
+}
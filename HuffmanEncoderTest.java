@@ -0,0 +1,96 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.*;
+
+public class HuffmanEncoderTest {
+
+    private static final String SEED = "the quick brown fox jumps over the lazy dog";
+
+    private static String decodeAll(Huffman model, byte[] encoded, int bufferSize)
+            throws IOException {
+        HuffmanDecoder decoder = new HuffmanDecoder(model,
+                Channels.newChannel(new ByteArrayInputStream(encoded)), bufferSize);
+        StringWriter out = new StringWriter();
+        decoder.transferTo(out);
+        decoder.close();
+        return out.toString();
+    }
+
+    //test round trip - small buffers so codes cross many frame boundaries
+    @Test
+    public void testRoundTripSmallBuffers() throws IOException {
+        Huffman h1 = new Huffman(SEED);
+        String input = TestInputs.randomInput(SEED, 10000, 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanEncoder encoder = new HuffmanEncoder(h1, Channels.newChannel(bytes), 16);
+        assertEquals(input.length(), encoder.encode(new StringReader(input)));
+        encoder.close();
+        assertEquals(input, decodeAll(h1, bytes.toByteArray(), 16));
+        assertEquals(input, decodeAll(h1, bytes.toByteArray(), 1024));
+    }
+
+    //test round trip - many small writes and flushes
+    @Test
+    public void testRoundTripPieces() throws IOException {
+        Huffman h1 = Huffman.canonical(SEED);
+        String input = TestInputs.randomInput(SEED, 3000, 2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanEncoder encoder = new HuffmanEncoder(h1, bytes);
+        for (int i = 0; i < input.length(); i += 7) {
+            encoder.write(input, i, Math.min(7, input.length() - i));
+            encoder.flush();
+        }
+        encoder.close();
+        assertEquals(input, decodeAll(h1, bytes.toByteArray(), 64));
+    }
+
+    //test encoder - same bits as compressToBytes
+    @Test
+    public void testMatchesCompressToBytes() throws IOException {
+        Huffman h1 = new Huffman(SEED);
+        String input = TestInputs.randomInput(SEED, 500, 3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HuffmanEncoder encoder = new HuffmanEncoder(h1, bytes);
+        encoder.write(input);
+        encoder.close();
+
+        ByteBuffer packed = ByteBuffer.wrap(h1.compressToBytes(input));
+        ByteBuffer framed = ByteBuffer.wrap(bytes.toByteArray());
+        assertEquals(packed.getLong(), framed.getInt());
+        assertEquals(packed, framed.limit(framed.limit() - 4));
+        assertEquals(0, ByteBuffer.wrap(bytes.toByteArray(), bytes.size() - 4, 4).getInt());
+    }
+
+    //test encoder - no input is just the end marker
+    @Test
+    public void testEmpty() throws IOException {
+        Huffman h1 = new Huffman(SEED);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new HuffmanEncoder(h1, bytes).close();
+        assertEquals(4, bytes.size());
+        assertEquals("", decodeAll(h1, bytes.toByteArray(), 16));
+    }
+
+    //test encoder - character not in the alphabet
+    @Test (expected = IllegalArgumentException.class)
+    public void testNotInAlphabet() throws IOException {
+        HuffmanEncoder encoder = new HuffmanEncoder(new Huffman(SEED), new ByteArrayOutputStream());
+        encoder.write("fox!");
+    }
+
+    //test encoder - writing after close
+    @Test (expected = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        HuffmanEncoder encoder = new HuffmanEncoder(new Huffman(SEED), new ByteArrayOutputStream());
+        encoder.close();
+        encoder.write("fox");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testNullOutput() {
+        new HuffmanEncoder(new Huffman(SEED), (OutputStream) null);
+    }
+}
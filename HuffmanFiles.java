@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Compresses and decompresses text files without holding their contents on the heap. The input
+ * is memory mapped, a window at a time so files larger than 2 GB work too, and read twice: once
+ * to count characters and once to encode them. Output goes through direct buffers.
+ * <p>
+ * A compressed file is the canonical model from {@link Huffman#exportCodeLengths()} followed by
+ * the frames written by {@link HuffmanEncoder}.
+ * <p>
+ * Usage: {@code java HuffmanFiles compress|decompress <input> <output> [charset]}
+ */
+public class HuffmanFiles {
+    static final int MAX_WINDOW_SIZE = 1 << 30;
+    //the largest model exportCodeLengths can write: a (symbol, length) pair for every char
+    private static final int MAX_MODEL_SIZE = 3 + 3 * (Character.MAX_VALUE + 1);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private interface CharConsumer {
+        void accept(CharBuffer chars) throws IOException;
+    }
+
+    /**
+     * Compresses a text file.
+     *
+     * @param input   the file to compress
+     * @param output  the file to write, replaced if it exists
+     * @param charset the encoding of the input file
+     * @throws IOException if reading or writing fails, or the input is not valid in the charset
+     */
+    public static void compress(Path input, Path output, Charset charset) throws IOException {
+        compress(input, output, charset, MAX_WINDOW_SIZE);
+    }
+
+    static void compress(Path input, Path output, Charset charset, int windowSize)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            long[] counts = new long[Character.MAX_VALUE + 1];
+            forEachChunk(in, charset, windowSize, chars -> {
+                while (chars.hasRemaining()) {
+                    counts[chars.get()]++;
+                }
+            });
+            Huffman model = Huffman.canonical(frequencies(counts));
+
+            try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                out.write(ByteBuffer.wrap(model.exportCodeLengths()));
+                HuffmanEncoder encoder = new HuffmanEncoder(model, out, BUFFER_SIZE);
+                char[] pending = new char[BUFFER_SIZE];
+                forEachChunk(in, charset, windowSize, chars -> {
+                    int length = chars.remaining();
+                    chars.get(pending, 0, length);
+                    encoder.write(pending, 0, length);
+                });
+                encoder.close();
+            }
+        }
+    }
+
+    /**
+     * Turns character counts into a frequency map with {@link HuffmanHistogram#frequencies}. An
+     * alphabet needs 2 characters, so files with fewer get an unused filler character.
+     */
+    private static Map<Character, Integer> frequencies(long[] counts) {
+        Map<Character, Integer> map = HuffmanHistogram.frequencies(counts);
+        for (char filler = 0; map.size() < 2; filler++) {
+            map.putIfAbsent(filler, 1);
+        }
+        return map;
+    }
+
+    /**
+     * Decodes the mapped file a window at a time and hands the characters over in chunks. A
+     * character split across two windows is decoded at the start of the second one.
+     */
+    private static void forEachChunk(FileChannel in, Charset charset, int windowSize,
+                                     CharConsumer consumer) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder();
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        long size = in.size();
+        long offset = 0;
+        while (true) {
+            long length = Math.min(windowSize, size - offset);
+            boolean last = offset + length == size;
+            MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            CoderResult result;
+            do {
+                result = decoder.decode(window, chars, last);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                chars.flip();
+                consumer.accept(chars);
+                chars.clear();
+            } while (result.isOverflow());
+            if (last) {
+                break;
+            }
+            if (window.position() == 0) {
+                throw new CharacterCodingException();
+            }
+            offset += window.position();
+        }
+        while (decoder.flush(chars).isOverflow() || chars.position() > 0) {
+            chars.flip();
+            consumer.accept(chars);
+            chars.clear();
+        }
+    }
+
+    /**
+     * Decompresses a file written by {@link #compress(Path, Path, Charset)}.
+     *
+     * @param input   the compressed file
+     * @param output  the file to write, replaced if it exists
+     * @param charset the encoding to write the text in
+     * @throws IOException if reading or writing fails, the input is not a compressed file, or the
+     *                     text cannot be written in the charset
+     */
+    public static void decompress(Path input, Path output, Charset charset) throws IOException {
+        decompress(input, output, charset, MAX_WINDOW_SIZE);
+    }
+
+    static void decompress(Path input, Path output, Charset charset, int windowSize)
+            throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            MappedByteBuffer header = in.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(MAX_MODEL_SIZE, in.size()));
+            Huffman model;
+            try {
+                model = Huffman.fromCodeLengths(header);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("not a compressed file", e);
+            }
+            MappedChannel mapped = new MappedChannel(in, header.position(), windowSize);
+
+            HuffmanDecoder decoder = new HuffmanDecoder(model, mapped, BUFFER_SIZE);
+            CharsetEncoder encoder = charset.newEncoder();
+            CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+            ByteBuffer bytes = ByteBuffer.allocateDirect(4 * BUFFER_SIZE);
+            boolean done = false;
+            while (!done) {
+                int read = decoder.read(chars.array(), chars.position(), chars.remaining());
+                done = read == -1;
+                if (!done) {
+                    chars.position(chars.position() + read);
+                }
+                chars.flip();
+                CoderResult result;
+                do {
+                    result = encoder.encode(chars, bytes, done);
+                    if (result.isError()) {
+                        result.throwException();
+                    }
+                    writeFully(out, bytes);
+                } while (result.isOverflow());
+                chars.compact();
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                writeFully(out, bytes);
+            }
+            writeFully(out, bytes);
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Reads a file through a sequence of mapped windows.
+     */
+    private static class MappedChannel implements ReadableByteChannel {
+        private final FileChannel file;
+        private final int windowSize;
+        private long offset;
+        private MappedByteBuffer window;
+
+        MappedChannel(FileChannel file, long start, int windowSize) throws IOException {
+            this.file = file;
+            this.windowSize = windowSize;
+            map(start);
+        }
+
+        private void map(long start) throws IOException {
+            offset = start;
+            window = file.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(windowSize, file.size() - start));
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!window.hasRemaining()) {
+                if (offset + window.limit() == file.size()) {
+                    return -1;
+                }
+                map(offset + window.limit());
+            }
+            int length = Math.min(dst.remaining(), window.remaining());
+            ByteBuffer slice = window.slice();
+            slice.limit(length);
+            dst.put(slice);
+            window.position(window.position() + length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return file.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4
+                || !(args[0].equals("compress") || args[0].equals("decompress"))) {
+            System.err.println("usage: java HuffmanFiles compress|decompress <input> <output> "
+                    + "[charset]");
+            System.exit(2);
+        }
+        Charset charset = args.length == 4 ? Charset.forName(args[3]) : StandardCharsets.UTF_8;
+        try {
+            if (args[0].equals("compress")) {
+                compress(Paths.get(args[1]), Paths.get(args[2]), charset);
+            } else {
+                decompress(Paths.get(args[1]), Paths.get(args[2]), charset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
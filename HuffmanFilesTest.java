@@ -0,0 +1,73 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class HuffmanFilesTest {
+
+    //compresses and decompresses text with the given window size, returns the compressed size
+    private static long roundTrip(String text, int windowSize) throws IOException {
+        Path input = Files.createTempFile("huffman", ".txt");
+        Path compressed = Files.createTempFile("huffman", ".huf");
+        Path output = Files.createTempFile("huffman", ".out");
+        try {
+            Files.write(input, text.getBytes(StandardCharsets.UTF_8));
+            HuffmanFiles.compress(input, compressed, StandardCharsets.UTF_8, windowSize);
+            HuffmanFiles.decompress(compressed, output, StandardCharsets.UTF_8, windowSize);
+            assertEquals(text, new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+            return Files.size(compressed);
+        } finally {
+            Files.delete(input);
+            Files.delete(compressed);
+            Files.delete(output);
+        }
+    }
+
+    //test round trip - windows split multi-byte characters
+    @Test
+    public void testSmallWindows() throws IOException {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(4);
+        String letters = "abc\u00e9\u4e2d\u6587 \n";
+        for (int i = 0; i < 5000; i++) {
+            text.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        text.append("\ud83d\ude00");
+        assertEquals(roundTrip(text.toString(), HuffmanFiles.MAX_WINDOW_SIZE),
+                roundTrip(text.toString(), 7));
+    }
+
+    //test round trip - compressed file is smaller than the text
+    @Test
+    public void testCompresses() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("the quick brown fox jumps over the lazy dog\n");
+        }
+        assertTrue(roundTrip(text.toString(), 64) < text.length() * 3 / 4);
+    }
+
+    //test round trip - fewer than two distinct characters
+    @Test
+    public void testTinyAlphabets() throws IOException {
+        roundTrip("", 16);
+        roundTrip("aaaaaaaa", 16);
+    }
+
+    //test decompress - not a compressed file
+    @Test (expected = IOException.class)
+    public void testNotCompressed() throws IOException {
+        Path input = Files.createTempFile("huffman", ".txt");
+        Path output = Files.createTempFile("huffman", ".out");
+        try {
+            Files.write(input, new byte[] {7, 7, 7});
+            HuffmanFiles.decompress(input, output, StandardCharsets.UTF_8);
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts how often each char occurs in a sequence using primitive counters. Short sequences are
+ * counted into a table covering only the range from their smallest to their largest char, so a
+ * small seed costs about as much as the seed itself. Long sequences are split into one slice per
+ * worker of the common fork-join pool, each worker counting its slice into its own histogram,
+ * and the histograms are added up once at the end.
+ */
+public class HuffmanHistogram {
+    //sequences at least this long are split across workers, each slice at least this long
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    //entry i is the number of times char lowest + i occurs
+    private final char lowest;
+    private final long[] counts;
+
+    private HuffmanHistogram(char lowest, long[] counts) {
+        this.lowest = lowest;
+        this.counts = counts;
+    }
+
+    /**
+     * @param input the characters to count
+     * @return an array of length 65536 where entry c is the number of times char c occurs
+     * @throws IllegalArgumentException if input is null
+     */
+    public static long[] count(CharSequence input) {
+        HuffmanHistogram histogram = of(input);
+        if (histogram.lowest == 0 && histogram.counts.length == Character.MAX_VALUE + 1) {
+            return histogram.counts;
+        }
+        long[] counts = new long[Character.MAX_VALUE + 1];
+        System.arraycopy(histogram.counts, 0, counts, histogram.lowest, histogram.counts.length);
+        return counts;
+    }
+
+    /**
+     * Counts the chars of input. Below {@link #PARALLEL_THRESHOLD} the table only covers the
+     * chars from the smallest to the largest one in input, and is empty for empty input.
+     *
+     * @param input the characters to count
+     * @return the histogram of input
+     * @throws IllegalArgumentException if input is null
+     */
+    static HuffmanHistogram of(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        int length = input.length();
+        if (length >= PARALLEL_THRESHOLD) {
+            return new HuffmanHistogram((char) 0, countParallel(input));
+        }
+        if (length == 0) {
+            return new HuffmanHistogram((char) 0, new long[0]);
+        }
+        char lowest = Character.MAX_VALUE;
+        char highest = Character.MIN_VALUE;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c < lowest) {
+                lowest = c;
+            }
+            if (c > highest) {
+                highest = c;
+            }
+        }
+        long[] counts = new long[highest - lowest + 1];
+        for (int i = 0; i < length; i++) {
+            counts[input.charAt(i) - lowest]++;
+        }
+        return new HuffmanHistogram(lowest, counts);
+    }
+
+    private static long[] countParallel(CharSequence input) {
+        int length = input.length();
+        int workers = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(),
+                length / PARALLEL_THRESHOLD));
+        List<CountSlice> slices = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            slices.add(new CountSlice(input, (int) ((long) length * w / workers),
+                    (int) ((long) length * (w + 1) / workers)));
+        }
+        ForkJoinTask.invokeAll(slices);
+        long[] total = new long[Character.MAX_VALUE + 1];
+        for (CountSlice slice : slices) {
+            int[] counts = slice.join();
+            for (int c = 0; c < total.length; c++) {
+                total[c] += counts[c];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return the smallest char the table covers
+     */
+    char lowest() {
+        return lowest;
+    }
+
+    /**
+     * @return the table itself, entry i is the number of times char lowest() + i occurs
+     */
+    long[] counts() {
+        return counts;
+    }
+
+    /**
+     * Turns the histogram into a frequency map like {@link #frequencies(long[])}.
+     *
+     * @return a map from each char that occurs to its frequency
+     */
+    Map<Character, Integer> frequencies() {
+        return frequencies(lowest, counts);
+    }
+
+    /**
+     * Turns counts from {@link #count(CharSequence)} into a frequency map in character order,
+     * halving all counts until they fit in an int. Characters that occur keep a frequency of at
+     * least 1.
+     *
+     * @param counts the number of times each char occurs, indexed by char
+     * @return a map from each char that occurs to its frequency
+     */
+    static Map<Character, Integer> frequencies(long[] counts) {
+        return frequencies((char) 0, counts);
+    }
+
+    private static Map<Character, Integer> frequencies(char lowest, long[] counts) {
+        long max = 0;
+        for (long count : counts) {
+            max = Math.max(max, count);
+        }
+        //half the int range, so adding up two frequencies while building a tree does not overflow
+        int shift = 0;
+        while ((max >>> shift) > Integer.MAX_VALUE / 2) {
+            shift++;
+        }
+        Map<Character, Integer> map = new TreeMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                map.put((char) (lowest + i), (int) Math.max(1, counts[i] >>> shift));
+            }
+        }
+        return map;
+    }
+
+    private static class CountSlice extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence input;
+        private final int from;
+        private final int to;
+
+        CountSlice(CharSequence input, int from, int to) {
+            this.input = input;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            //a slice is shorter than 2^31, so int counters cannot overflow
+            int[] counts = new int[Character.MAX_VALUE + 1];
+            for (int i = from; i < to; i++) {
+                counts[input.charAt(i)]++;
+            }
+            return counts;
+        }
+    }
+}
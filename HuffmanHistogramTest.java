@@ -0,0 +1,76 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class HuffmanHistogramTest {
+
+    //test count - small input
+    @Test
+    public void testCount() {
+        long[] counts = HuffmanHistogram.count("aaab\uffff");
+        assertEquals(65536, counts.length);
+        assertEquals(3, counts['a']);
+        assertEquals(1, counts['b']);
+        assertEquals(1, counts['\uffff']);
+        assertEquals(0, counts['c']);
+    }
+
+    //test count - input long enough to be split across tasks
+    @Test
+    public void testCountParallel() {
+        Random random = new Random(10);
+        StringBuilder input = new StringBuilder();
+        long[] expected = new long[65536];
+        for (int i = 0; i < 3 * HuffmanHistogram.PARALLEL_THRESHOLD + 17; i++) {
+            char c = (char) random.nextInt(300);
+            input.append(c);
+            expected[c]++;
+        }
+        assertArrayEquals(expected, HuffmanHistogram.count(input));
+    }
+
+    //test count - empty input
+    @Test
+    public void testCountEmpty() {
+        assertArrayEquals(new long[65536], HuffmanHistogram.count(""));
+    }
+
+    //test of - short input is counted over its own range of chars only
+    @Test
+    public void testRange() {
+        HuffmanHistogram histogram = HuffmanHistogram.of("dbbd\u0062f");
+        assertEquals('b', histogram.lowest());
+        assertArrayEquals(new long[] {3, 0, 2, 0, 1}, histogram.counts());
+        assertEquals(0, HuffmanHistogram.of("").counts().length);
+        Map<Character, Integer> map = histogram.frequencies();
+        assertEquals(Arrays.asList('b', 'd', 'f'), new ArrayList<>(map.keySet()));
+        assertEquals(2, (int) map.get('d'));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testCountNull() {
+        HuffmanHistogram.count(null);
+    }
+
+    //test frequencies - counts that fit are kept, only characters that occur are in the map
+    @Test
+    public void testFrequencies() {
+        Map<Character, Integer> map = HuffmanHistogram.frequencies(HuffmanHistogram.count("abb"));
+        assertEquals(2, map.size());
+        assertEquals(1, (int) map.get('a'));
+        assertEquals(2, (int) map.get('b'));
+        assertEquals(Arrays.asList('a', 'b'), new ArrayList<>(map.keySet()));
+    }
+
+    //test frequencies - large counts are halved, rare characters keep a frequency of 1
+    @Test
+    public void testFrequenciesHalved() {
+        long[] counts = new long[65536];
+        counts['a'] = 1L << 40;
+        counts['b'] = 1;
+        Map<Character, Integer> map = HuffmanHistogram.frequencies(counts);
+        assertTrue(map.get('a') <= Integer.MAX_VALUE / 2);
+        assertTrue(map.get('a') > Integer.MAX_VALUE / 4);
+        assertEquals(1, (int) map.get('b'));
+    }
+}
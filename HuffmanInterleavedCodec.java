@@ -0,0 +1,254 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compresses input into several interleaved bitstreams: character i goes to stream i % N. The
+ * decoder advances all N streams in the same loop, so the table lookups of different streams do
+ * not depend on each other and the CPU can overlap them, whereas in a single stream every lookup
+ * has to wait for the length of the code before it.
+ * <p>
+ * The output starts with the number of streams (int) and characters (long), then the length in
+ * bits of every stream (one long each), then the streams, each starting on a byte boundary.
+ * {@link HuffmanBlockCodec} can interleave every block this way, so that blocks are decoded in
+ * parallel and the streams within each block overlap.
+ * <p>
+ * Models with an escape code are not supported: an escaped character is a code followed by a
+ * literal, which a single table lookup per character cannot decode.
+ */
+public class HuffmanInterleavedCodec {
+    /**
+     * The number of streams used when none is given.
+     */
+    public static final int DEFAULT_STREAMS = 4;
+    private static final int LOOKUP_BITS = 11;
+
+    private final Huffman model;
+    private final int streams;
+    private final int lookupBits;
+    private final int maxLength;
+    //entries are symbol << 8 | code length, 0 for prefixes of codes longer than lookupBits
+    private final int[] table;
+    //state table for the codes that do not fit in the lookup, see HuffmanDecoder
+    private final int[] child;
+
+    /**
+     * @param model the model to encode and decode with
+     * @throws IllegalArgumentException if model is null
+     */
+    public HuffmanInterleavedCodec(Huffman model) {
+        this(model, DEFAULT_STREAMS);
+    }
+
+    /**
+     * @param model   the model to encode and decode with
+     * @param streams the number of interleaved streams, between 1 and 16
+     * @throws IllegalArgumentException if model is null, streams is out of range, or the model
+     *                                  has codes longer than 56 bits, which cannot be decoded
+     *                                  from a single refill of a 64 bit register, or if the
+     *                                  model has an escape code
+     */
+    public HuffmanInterleavedCodec(Huffman model, int streams) {
+        if (model == null) {
+            throw new IllegalArgumentException("null model");
+        }
+        if (streams < 1 || streams > 16) {
+            throw new IllegalArgumentException("streams must be between 1 and 16");
+        }
+        if (model.escapeLength() > 0) {
+            throw new IllegalArgumentException("escape codes are not supported");
+        }
+        this.model = model;
+        this.streams = streams;
+
+        int longest = 0;
+        for (int i = 0; i < model.symbolRange(); i++) {
+            longest = Math.max(longest, model.codeLength(i));
+        }
+        if (longest > 56) {
+            throw new IllegalArgumentException("codes longer than 56 bits");
+        }
+        maxLength = longest;
+        lookupBits = Math.min(LOOKUP_BITS, maxLength);
+        table = new int[1 << lookupBits];
+        for (int i = 0; i < model.symbolRange(); i++) {
+            int length = model.codeLength(i);
+            if (length > 0 && length <= lookupBits) {
+                int start = (int) (model.codeBits(i) << (lookupBits - length));
+                for (int j = start; j < start + (1 << (lookupBits - length)); j++) {
+                    table[j] = ((model.symbolBase() + i) << 8) | length;
+                }
+            }
+        }
+        child = HuffmanDecoder.buildStates(model);
+    }
+
+    /**
+     * @param input the characters to compress, can be empty
+     * @return the interleaved streams with their header
+     * @throws IllegalArgumentException if the input is null, contains characters that are not
+     *                                  compressible, or does not fit in a single array
+     */
+    public byte[] compress(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input in compress");
+        }
+        long size = encodedSize(input, 0, input.length());
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("encoding too large for a single array");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        encode(input, 0, input.length(), out);
+        return out.array();
+    }
+
+    /**
+     * @return the number of bytes {@link #encode} writes for input[from, to), header included
+     * @throws IllegalArgumentException if the range contains characters that are not
+     *                                  compressible
+     */
+    long encodedSize(CharSequence input, int from, int to) {
+        model.encodedLength(input, from, to);
+        long size = Integer.BYTES + Long.BYTES + (long) Long.BYTES * streams;
+        for (long bits : streamLengths(input, from, to)) {
+            size += (bits + 7) / 8;
+        }
+        return size;
+    }
+
+    /**
+     * Writes input[from, to) in the layout of {@link #compress(CharSequence)}, starting at the
+     * buffer's position. The characters must have been checked by {@link #encodedSize}.
+     */
+    void encode(CharSequence input, int from, int to, ByteBuffer out) {
+        out.putInt(streams).putLong(to - from);
+        for (long bits : streamLengths(input, from, to)) {
+            out.putLong(bits);
+        }
+        for (int s = 0; s < streams; s++) {
+            BitWriter writer = new BitWriter(out);
+            for (int i = from + s; i < to; i += streams) {
+                int index = input.charAt(i) - model.symbolBase();
+                writer.write(model.codeBits(index), model.codeLength(index));
+            }
+            writer.flush();
+        }
+    }
+
+    private long[] streamLengths(CharSequence input, int from, int to) {
+        long[] bitLengths = new long[streams];
+        for (int i = from; i < to; i++) {
+            int index = input.charAt(i) - model.symbolBase();
+            bitLengths[(i - from) % streams] += model.codeLength(index);
+        }
+        return bitLengths;
+    }
+
+    /**
+     * Decompresses the output of {@link #compress(CharSequence)}.
+     *
+     * @param input the compressed streams, starting at the buffer's position
+     * @return the decoded characters
+     * @throws IllegalArgumentException if the input is null, truncated, was compressed with a
+     *                                  different number of streams, or contains bits that are not
+     *                                  decodable
+     */
+    public String decompress(ByteBuffer input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        long charCount;
+        long[] bitLengths = new long[streams];
+        try {
+            if (input.getInt() != streams) {
+                throw new IllegalArgumentException("compressed with a different number of streams");
+            }
+            charCount = input.getLong();
+            for (int s = 0; s < streams; s++) {
+                bitLengths[s] = input.getLong();
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated input");
+        }
+        if (charCount < 0 || charCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("invalid header");
+        }
+
+        //every stream reads from its own part of one array
+        byte[] data = new byte[input.remaining()];
+        input.duplicate().get(data);
+        int[] position = new int[streams];
+        int[] end = new int[streams];
+        long offset = 0;
+        for (int s = 0; s < streams; s++) {
+            if (bitLengths[s] < 0 || offset + (bitLengths[s] + 7) / 8 > data.length) {
+                throw new IllegalArgumentException("truncated input");
+            }
+            position[s] = (int) offset;
+            offset += (bitLengths[s] + 7) / 8;
+            end[s] = (int) offset;
+        }
+
+        char[] output = new char[(int) charCount];
+        long[] accumulator = new long[streams];
+        int[] available = new int[streams];
+        long[] consumed = new long[streams];
+        int mask = (1 << lookupBits) - 1;
+        int rounds = output.length / streams;
+        for (int round = 0; round <= rounds; round++) {
+            int last = round < rounds ? streams : output.length % streams;
+            for (int s = 0; s < last; s++) {
+                //past the end of a stream it reads zeroes, caught by the length check below
+                if (available[s] < maxLength) {
+                    long bits = accumulator[s];
+                    int p = position[s];
+                    while (available[s] <= 56) {
+                        bits = (bits << 8) | (p < end[s] ? data[p] & 0xff : 0);
+                        p++;
+                        available[s] += 8;
+                    }
+                    accumulator[s] = bits;
+                    position[s] = p;
+                }
+                int entry = table[(int) (accumulator[s] >>> (available[s] - lookupBits)) & mask];
+                int length = entry & 0xff;
+                if (length != 0) {
+                    output[round * streams + s] = (char) (entry >>> 8);
+                } else {
+                    length = decodeLong(accumulator[s], available[s], output,
+                            round * streams + s);
+                }
+                available[s] -= length;
+                consumed[s] += length;
+            }
+        }
+
+        for (int s = 0; s < streams; s++) {
+            if (consumed[s] != bitLengths[s]) {
+                throw new IllegalArgumentException("stream does not match its length");
+            }
+        }
+        input.position(input.position() + (int) offset);
+        return new String(output);
+    }
+
+    /**
+     * Decodes a code longer than the lookup table one bit at a time. The accumulator always holds
+     * at least as many bits as the longest code here.
+     *
+     * @return the length of the code
+     */
+    private int decodeLong(long accumulator, int available, char[] output, int index) {
+        int state = 0;
+        for (int length = 1; length <= available; length++) {
+            int next = child[2 * state + (int) ((accumulator >>> (available - length)) & 1)];
+            if (next == 0) {
+                throw new IllegalArgumentException("bits do not match any code");
+            } else if (next < 0) {
+                output[index] = (char) ~next;
+                return length;
+            }
+            state = next;
+        }
+        throw new IllegalArgumentException("bits do not match any code");
+    }
+}
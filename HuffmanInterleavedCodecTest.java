@@ -0,0 +1,75 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class HuffmanInterleavedCodecTest {
+
+    private static final String SEED = "the quick brown fox jumps over the lazy dog";
+
+    //test round trip - every stream count, lengths that do not divide evenly
+    @Test
+    public void testRoundTrip() {
+        Huffman h1 = new Huffman(SEED);
+        for (int streams = 1; streams <= 16; streams++) {
+            HuffmanInterleavedCodec codec = new HuffmanInterleavedCodec(h1, streams);
+            for (int length : new int[] {0, 1, streams - 1, 1001}) {
+                String input = TestInputs.randomInput(SEED, length, length);
+                assertEquals(input, codec.decompress(ByteBuffer.wrap(codec.compress(input))));
+            }
+        }
+    }
+
+    //test round trip - codes longer than the lookup table
+    @Test
+    public void testDeepTree() {
+        StringBuilder seed = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 1 << i; j++) {
+                seed.append((char) ('a' + i));
+            }
+        }
+        Huffman h1 = new Huffman(seed.toString());
+        HuffmanInterleavedCodec codec = new HuffmanInterleavedCodec(h1);
+        String input = "abcdefghijklmnopqrst" + TestInputs.randomInput(seed.toString(), 500, 1)
+                + "ba";
+        assertEquals(input, codec.decompress(ByteBuffer.wrap(codec.compress(input))));
+    }
+
+    //test compress - one stream is the plain packed encoding
+    @Test
+    public void testSingleStream() {
+        Huffman h1 = new Huffman(SEED);
+        ByteBuffer interleaved = ByteBuffer.wrap(new HuffmanInterleavedCodec(h1, 1).compress(SEED));
+        ByteBuffer packed = ByteBuffer.wrap(h1.compressToBytes(SEED));
+        assertEquals(1, interleaved.getInt());
+        assertEquals(SEED.length(), interleaved.getLong());
+        assertEquals(packed, interleaved);
+    }
+
+    //test decompress - truncated input
+    @Test (expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        HuffmanInterleavedCodec codec = new HuffmanInterleavedCodec(new Huffman(SEED));
+        byte[] compressed = codec.compress(SEED);
+        codec.decompress(ByteBuffer.wrap(compressed, 0, compressed.length - 1));
+    }
+
+    //test decompress - different number of streams
+    @Test (expected = IllegalArgumentException.class)
+    public void testWrongStreams() {
+        Huffman h1 = new Huffman(SEED);
+        byte[] compressed = new HuffmanInterleavedCodec(h1, 4).compress(SEED);
+        new HuffmanInterleavedCodec(h1, 2).decompress(ByteBuffer.wrap(compressed));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testTooManyStreams() {
+        new HuffmanInterleavedCodec(new Huffman(SEED), 17);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testEscapeModel() {
+        new HuffmanInterleavedCodec(Huffman.withEscape(SEED, 2), 4);
+    }
+}
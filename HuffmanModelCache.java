@@ -0,0 +1,268 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of built {@link Huffman} models, so that recurring seeds and alphabets pay for
+ * the tree construction only once. Models are keyed by their normalized frequency map: the
+ * characters in the order their leaves go into the tree, with their frequencies divided by the
+ * greatest common divisor, since scaling all frequencies does not change the codes. A seed and a
+ * map with proportional counts and the same iteration order therefore share one model. Short
+ * seeds are also remembered as they are, up to one per model the cache can hold, so looking one
+ * up again skips counting it.
+ * <p>
+ * Lookups are safe from any number of threads. When the cache holds more than maxEntries models,
+ * or their tables take more than maxWeight bytes (see {@link Huffman#tableFootprint()}), the
+ * least recently used models are evicted. Every lookup returns {@link
+ * Huffman#withNewStatistics()} of the cached model, so callers share the tables but never each
+ * other's compression statistics.
+ */
+public class HuffmanModelCache {
+
+    private static class Key {
+        private final char[] symbols;
+        private final int[] frequencies;
+        private final int hash;
+
+        private Key(char[] symbols, int[] frequencies) {
+            this.symbols = symbols;
+            this.frequencies = frequencies;
+            hash = 31 * Arrays.hashCode(symbols) + Arrays.hashCode(frequencies);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && Arrays.equals(symbols, other.symbols)
+                    && Arrays.equals(frequencies, other.frequencies);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Cached {
+        private final Huffman model;
+        private final long weight;
+        private volatile long lastUse;
+
+        private Cached(Huffman model) {
+            this.model = model;
+            weight = model.tableFootprint();
+        }
+    }
+
+    //seeds up to this long are remembered with the key of their model
+    private static final int SEED_LIMIT = 1 << 12;
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ConcurrentHashMap<Key, Cached> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Key> seeds = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong weight = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries the most models to keep, at least 1
+     * @param maxWeight  the most bytes of tables to keep, at least 1
+     * @throws IllegalArgumentException if maxEntries or maxWeight is less than 1
+     */
+    public HuffmanModelCache(int maxEntries, long maxWeight) {
+        if (maxEntries < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException("cache bounds must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns a model with the same codes as {@link Huffman#Huffman(String)} for the seed.
+     *
+     * @param seed the String from which to build the encoding
+     * @return the cached or newly built model
+     * @throws IllegalArgumentException seed is null, seed is empty, or resulting alphabet only has
+     *                                  1 character
+     */
+    public Huffman get(String seed) {
+        if (seed == null || seed.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        Key key = seeds.get(seed);
+        if (key != null) {
+            Cached cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                cached.lastUse = clock.incrementAndGet();
+                return cached.model.withNewStatistics();
+            }
+        }
+        Map<Character, Integer> counts = Huffman.seedFrequencies(seed);
+        if (counts.size() < 2) {
+            throw new IllegalArgumentException("one char");
+        }
+        key = normalize(counts);
+        Huffman model = lookup(key);
+        //at most maxEntries seeds, other seeds still find their model through the counts
+        if (seed.length() <= SEED_LIMIT && seeds.size() < maxEntries) {
+            seeds.put(seed, key);
+        }
+        return model;
+    }
+
+    /**
+     * Returns a model with the same codes as {@link Huffman#Huffman(Map)} for the alphabet. Those
+     * depend on the iteration order of the map, so maps with the same counts in a different order
+     * may get different models.
+     *
+     * @param alphabet a frequency map for characters in the alphabet
+     * @return the cached or newly built model
+     * @throws IllegalArgumentException if the alphabet is null, empty, has fewer than 2 characters,
+     *                                  or has any non-positive frequencies
+     */
+    public Huffman get(Map<Character, Integer> alphabet) {
+        if (alphabet == null || alphabet.size() < 2) {
+            throw new IllegalArgumentException();
+        }
+        for (Map.Entry<Character, Integer> entry : alphabet.entrySet()) {
+            if (entry.getValue() <= 0) {
+                throw new IllegalArgumentException("negative frequency");
+            }
+        }
+        return lookup(normalize(alphabet));
+    }
+
+    private Huffman lookup(Key key) {
+        Cached cached = entries.get(key);
+        if (cached == null) {
+            boolean[] built = new boolean[1];
+            cached = entries.computeIfAbsent(key, k -> {
+                built[0] = true;
+                return new Cached(new Huffman(denormalize(k)));
+            });
+            if (built[0]) {
+                misses.increment();
+                cached.lastUse = clock.incrementAndGet();
+                weight.addAndGet(cached.weight);
+                evict();
+                return cached.model.withNewStatistics();
+            }
+        }
+        hits.increment();
+        cached.lastUse = clock.incrementAndGet();
+        return cached.model.withNewStatistics();
+    }
+
+    private static Key normalize(Map<Character, Integer> counts) {
+        int gcd = 0;
+        for (int count : counts.values()) {
+            gcd = gcd(gcd, count);
+        }
+        char[] symbols = new char[counts.size()];
+        int[] frequencies = new int[counts.size()];
+        int i = 0;
+        for (Map.Entry<Character, Integer> entry : counts.entrySet()) {
+            symbols[i] = entry.getKey();
+            frequencies[i++] = entry.getValue() / gcd;
+        }
+        return new Key(symbols, frequencies);
+    }
+
+    /**
+     * @return the normalized frequency map, iterating in the order of the key
+     */
+    private static Map<Character, Integer> denormalize(Key key) {
+        Map<Character, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < key.symbols.length; i++) {
+            map.put(key.symbols[i], key.frequencies[i]);
+        }
+        return map;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Removes least recently used models until the cache is within both bounds. Finding the
+     * oldest model is a scan, which is fine for the small caches this is meant for and keeps
+     * lookups free of any shared lock.
+     */
+    private void evict() {
+        while (entries.size() > maxEntries || weight.get() > maxWeight) {
+            Map.Entry<Key, Cached> oldest = null;
+            for (Map.Entry<Key, Cached> entry : entries.entrySet()) {
+                if (oldest == null || entry.getValue().lastUse < oldest.getValue().lastUse) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                weight.addAndGet(-oldest.getValue().weight);
+                evictions.increment();
+                seeds.values().removeIf(oldest.getKey()::equals);
+            }
+        }
+    }
+
+    /**
+     * @return the number of lookups that found a cached model
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to build a model
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of models evicted to stay within the bounds
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the fraction of lookups that were hits, 0 before the first lookup
+     */
+    public double hitRate() {
+        long hit = hits();
+        long total = hit + misses();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * @return the number of cached models
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total table footprint of the cached models in bytes
+     */
+    public long weight() {
+        return weight.get();
+    }
+}
@@ -0,0 +1,144 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class HuffmanModelCacheTest {
+
+    //test get - same codes as building the model directly
+    @Test
+    public void testSameCodes() {
+        HuffmanModelCache cache = new HuffmanModelCache(8, 1 << 20);
+        Huffman h1 = cache.get("aaaaabbbbccd");
+        assertEquals("00100", h1.compress("aad"));
+        assertEquals("100", h1.encodingOf('d'));
+        assertEquals(new Huffman("aaaaabbbbccd").expectedEncodingLength(),
+                h1.expectedEncodingLength(), 0);
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    //test get - proportional seeds and maps share one model
+    @Test
+    public void testNormalizedKey() {
+        HuffmanModelCache cache = new HuffmanModelCache(8, 1 << 20);
+        cache.get("aaaaabbbbccd");
+        cache.get("bbbbccdaaaaabbbbccdaaaaa");
+        Map<Character, Integer> map = new HashMap<>();
+        map.put('a', 50);
+        map.put('b', 40);
+        map.put('c', 20);
+        map.put('d', 10);
+        Huffman h1 = cache.get(map);
+        assertEquals("00100", h1.compress("aad"));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.size());
+        assertEquals(2.0 / 3.0, cache.hitRate(), 1e-12);
+    }
+
+    //test get - characters sharing a hash bucket keep the order of the seed
+    @Test
+    public void testLeafOrder() {
+        HuffmanModelCache cache = new HuffmanModelCache(8, 1 << 20);
+        Huffman h1 = cache.get("aaqqbbc");
+        Huffman h2 = cache.get("qqaabbc");
+        assertEquals(new Huffman("aaqqbbc").compress("aqbc"), h1.compress("aqbc"));
+        assertEquals(new Huffman("qqaabbc").compress("aqbc"), h2.compress("aqbc"));
+        assertNotEquals(h1.compress("aqbc"), h2.compress("aqbc"));
+        assertEquals(2, cache.misses());
+    }
+
+    //test get - a remembered seed finds its model again, until the model is evicted
+    @Test
+    public void testRememberedSeed() {
+        HuffmanModelCache cache = new HuffmanModelCache(1, 1 << 20);
+        assertEquals("00100", cache.get("aaaaabbbbccd").compress("aad"));
+        assertEquals("00100", cache.get("aaaaabbbbccd").compress("aad"));
+        assertEquals(1, cache.hits());
+        cache.get("xyz");
+        assertEquals(1, cache.evictions());
+        assertEquals("00100", cache.get("aaaaabbbbccd").compress("aad"));
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    //test get - hits share tables but not statistics
+    @Test (expected = IllegalStateException.class)
+    public void testSeparateStatistics() {
+        HuffmanModelCache cache = new HuffmanModelCache(8, 1 << 20);
+        cache.get("aaabbc").compress("abc");
+        cache.get("aaabbc").compressionRatio();
+    }
+
+    //test eviction - least recently used goes first
+    @Test
+    public void testEvictBySize() {
+        HuffmanModelCache cache = new HuffmanModelCache(2, 1 << 20);
+        cache.get("ab");
+        cache.get("abc");
+        cache.get("ab");
+        cache.get("abcd");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        cache.get("ab");
+        assertEquals(2, cache.hits());
+        cache.get("abc");
+        assertEquals(4, cache.misses());
+    }
+
+    //test eviction - total table footprint stays within the bound
+    @Test
+    public void testEvictByWeight() {
+        long one = new Huffman("abcdefgh").tableFootprint();
+        HuffmanModelCache cache = new HuffmanModelCache(100, 2 * one);
+        cache.get("abcdefgh");
+        cache.get("aabcdefgh");
+        assertEquals(2 * one, cache.weight());
+        cache.get("aaabcdefgh");
+        assertEquals(2, cache.size());
+        assertTrue(cache.weight() <= 2 * one);
+        assertEquals(1, cache.evictions());
+    }
+
+    //test get - concurrent lookups build each model once
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        HuffmanModelCache cache = new HuffmanModelCache(100, 1 << 24);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    Huffman h1 = cache.get("ab" + (char) ('c' + i % 10));
+                    assertEquals(2, h1.encodingOf('a').length());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(10, cache.misses());
+        assertEquals(8 * 200 - 10, cache.hits());
+    }
+
+    //test get - long seeds are counted with a histogram
+    @Test
+    public void testLongSeed() {
+        StringBuilder seed = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            seed.append((char) ('a' + i % 7 % 4));
+        }
+        HuffmanModelCache cache = new HuffmanModelCache(8, 1 << 20);
+        Huffman h1 = cache.get(seed.toString());
+        assertEquals(new Huffman(seed.toString()).compress("abcd"), h1.compress("abcd"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testOneChar() {
+        new HuffmanModelCache(8, 1 << 20).get("aaaa");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testBounds() {
+        new HuffmanModelCache(0, 1 << 20);
+    }
+}
@@ -0,0 +1,269 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a {@link Huffman} model in step with the characters a long-running service actually
+ * compresses. Every compression samples its input into live character counts. Once enough samples
+ * have come in, a background task compares the expected code length of the current model over the
+ * sampled distribution with that of an optimal code for it; if the current model wastes more than
+ * the threshold in bits per character, a new model is built from the samples and published under
+ * the next version.
+ * <p>
+ * Models are escape models (see {@link Huffman#withEscape(Map, int)}), so characters that drift
+ * in after a model was built can still be compressed. Every compressed message starts with the
+ * version of its model, and decoders select the model by that version. Publishing swaps a volatile
+ * reference, so encoders never wait for a rebuild. The most recent {@link #RETAINED_VERSIONS}
+ * versions are kept for decoding.
+ */
+public class HuffmanModelManager {
+    /**
+     * The number of published versions that stay available to {@link #model(int)}.
+     */
+    public static final int RETAINED_VERSIONS = 16;
+    /**
+     * The number of samples between background checks.
+     */
+    public static final int CHECK_INTERVAL = 1 << 16;
+
+    /**
+     * A published model and its version.
+     */
+    public static class Model {
+        private final int version;
+        private final Huffman huffman;
+
+        private Model(int version, Huffman huffman) {
+            this.version = version;
+            this.huffman = huffman;
+        }
+
+        public int version() {
+            return version;
+        }
+
+        public Huffman huffman() {
+            return huffman;
+        }
+    }
+
+    private final double threshold;
+    private final int sampleRate;
+    private final Executor executor;
+    private final Map<Integer, Model> versions = new ConcurrentHashMap<>();
+    private volatile Model current;
+
+    //sampled character counts since the current model was published
+    private final AtomicLongArray counts = new AtomicLongArray(Character.MAX_VALUE + 1);
+    private final LongAdder samplesSinceCheck = new LongAdder();
+    private final AtomicBoolean checking = new AtomicBoolean();
+
+    /**
+     * Constructs a manager that samples one character in 16, rebuilds when the current model
+     * wastes more than 0.05 bits per character, and rebuilds on the common fork join pool.
+     *
+     * @param seed the String from which to build the first model
+     * @throws IllegalArgumentException if seed is null or empty
+     */
+    public HuffmanModelManager(String seed) {
+        this(seed, 0.05, 16, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param seed       the String from which to build the first model, published as version 0
+     * @param threshold  how many bits per character the current model may waste before it is
+     *                   rebuilt
+     * @param sampleRate one in this many characters is counted, at least 1
+     * @param executor   runs the background checks and rebuilds
+     * @throws IllegalArgumentException if seed is null or empty, threshold is negative or NaN,
+     *                                  sampleRate is less than 1, or executor is null
+     */
+    public HuffmanModelManager(String seed, double threshold, int sampleRate, Executor executor) {
+        if (seed == null || seed.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        if (!(threshold >= 0) || sampleRate < 1 || executor == null) {
+            throw new IllegalArgumentException("invalid threshold, sample rate or executor");
+        }
+        this.threshold = threshold;
+        this.sampleRate = sampleRate;
+        this.executor = executor;
+        publish(new Model(0, Huffman.withEscape(seed, 0)));
+    }
+
+    /**
+     * @return the model new messages are compressed with
+     */
+    public Model current() {
+        return current;
+    }
+
+    /**
+     * @param version the version of a published model
+     * @return the model with that version
+     * @throws IllegalArgumentException if no model with that version is retained
+     */
+    public Model model(int version) {
+        Model model = versions.get(version);
+        if (model == null) {
+            throw new IllegalArgumentException("unknown model version " + version);
+        }
+        return model;
+    }
+
+    /**
+     * Compresses the input with the current model and samples it. The result is the version of
+     * the model as an int followed by the layout of {@link Huffman#compressToBytes(CharSequence)}.
+     *
+     * @param input the characters to compress, can be empty
+     * @return the compressed input
+     * @throws IllegalArgumentException if the input is null
+     */
+    public byte[] compress(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input in compress");
+        }
+        Model model = current;
+        byte[] packed = model.huffman.compressToBytes(input);
+        observe(input);
+        ByteBuffer out = ByteBuffer.allocate(Integer.BYTES + packed.length);
+        out.putInt(model.version);
+        out.put(packed);
+        return out.array();
+    }
+
+    /**
+     * Decompresses the output of {@link #compress(CharSequence)} with the model it was
+     * compressed with, starting at the buffer's position.
+     *
+     * @param input the buffer to read from, its position is advanced past the encoding
+     * @return the decoded characters
+     * @throws IllegalArgumentException if the input is null, truncated, or not decodable, or its
+     *                                  model version is no longer retained
+     */
+    public String decompress(ByteBuffer input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        if (input.remaining() < Integer.BYTES) {
+            throw new IllegalArgumentException("missing model version");
+        }
+        return model(input.getInt()).huffman.decompressFromBytes(input);
+    }
+
+    /**
+     * Samples characters that were compressed some other way, such as with a stream encoder on
+     * {@link #current()}. Starts a background check once enough samples have come in.
+     *
+     * @param input the characters to sample
+     * @throws IllegalArgumentException if the input is null
+     */
+    public void observe(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        //a random offset keeps periodic input from always sampling the same characters
+        int start = sampleRate == 1 ? 0 : ThreadLocalRandom.current().nextInt(sampleRate);
+        int samples = 0;
+        for (int i = start; i < input.length(); i += sampleRate) {
+            counts.incrementAndGet(input.charAt(i));
+            samples++;
+        }
+        samplesSinceCheck.add(samples);
+        //claiming the check before scheduling it keeps at most one queued
+        if (samplesSinceCheck.sum() >= CHECK_INTERVAL && checking.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> rebuildIfDiverged());
+            } catch (RuntimeException e) {
+                checking.set(false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Computes how many bits per character the current model spends over the model a rebuild
+     * would publish: an optimal code for the characters sampled since the current model was
+     * published, plus an escape code.
+     *
+     * @return the difference in expected code length, 0 if nothing has been sampled
+     */
+    public double divergence() {
+        return divergence(snapshot(), current.huffman);
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[counts.length()];
+        for (int c = 0; c < snapshot.length; c++) {
+            snapshot[c] = counts.get(c);
+        }
+        return snapshot;
+    }
+
+    private static double divergence(long[] observed, Huffman model) {
+        //what withEscape would build, the escape code last with the minimum weight
+        long[] withEscape = Arrays.copyOf(observed, observed.length + 1);
+        withEscape[observed.length] = 1;
+        int[] optimal = Huffman.codeLengths(withEscape);
+        long total = 0;
+        double currentBits = 0;
+        double optimalBits = 0;
+        for (int c = 0; c < observed.length; c++) {
+            if (observed[c] > 0) {
+                total += observed[c];
+                currentBits += (double) observed[c] * model.encodedLength((char) c);
+                optimalBits += (double) observed[c] * optimal[c];
+            }
+        }
+        return total == 0 ? 0 : (currentBits - optimalBits) / total;
+    }
+
+    /**
+     * Compares the current model with the sampled characters and publishes a new model if it
+     * diverged by more than the threshold. Background checks call this; calling it directly runs
+     * a check now unless one is already running.
+     *
+     * @return true if a new model was published
+     */
+    public boolean check() {
+        if (!checking.compareAndSet(false, true)) {
+            return false;
+        }
+        return rebuildIfDiverged();
+    }
+
+    /**
+     * Runs a check claimed by setting {@code checking}, and releases it.
+     */
+    private boolean rebuildIfDiverged() {
+        try {
+            samplesSinceCheck.reset();
+            long[] observed = snapshot();
+            Model model = current;
+            if (divergence(observed, model.huffman) <= threshold) {
+                return false;
+            }
+            Huffman huffman = Huffman.withEscape(HuffmanHistogram.frequencies(observed), 0);
+            publish(new Model(model.version + 1, huffman));
+            for (int c = 0; c < observed.length; c++) {
+                counts.addAndGet(c, -observed[c]);
+            }
+            return true;
+        } finally {
+            checking.set(false);
+        }
+    }
+
+    private void publish(Model model) {
+        versions.put(model.version, model);
+        current = model;
+        versions.remove(model.version - RETAINED_VERSIONS);
+    }
+}
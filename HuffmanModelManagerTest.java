@@ -0,0 +1,92 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+public class HuffmanModelManagerTest {
+
+    //runs background checks on the calling thread
+    private static final Executor DIRECT = Runnable::run;
+
+    //test compress - round trip with version 0
+    @Test
+    public void testRoundTrip() {
+        HuffmanModelManager manager = new HuffmanModelManager("aaaabbc");
+        byte[] compressed = manager.compress("abcx");
+        assertEquals(0, ByteBuffer.wrap(compressed).getInt());
+        assertEquals("abcx", manager.decompress(ByteBuffer.wrap(compressed)));
+    }
+
+    //test check - the same distribution as the seed keeps the model
+    @Test
+    public void testNoDrift() {
+        String seed = TestInputs.skewedInput("abcdefgh", 10000, 2, 1);
+        HuffmanModelManager manager = new HuffmanModelManager(seed, 0.05, 1, DIRECT);
+        manager.compress(TestInputs.skewedInput("abcdefgh", 10000, 2, 2));
+        assertTrue(manager.divergence() < 0.05);
+        assertFalse(manager.check());
+        assertEquals(0, manager.current().version());
+    }
+
+    //test check - drifted input publishes a new version, old messages still decode
+    @Test
+    public void testDrift() {
+        HuffmanModelManager manager = new HuffmanModelManager(
+                TestInputs.skewedInput("abcdefgh", 10000, 2, 3), 0.05, 1, DIRECT);
+        String before = TestInputs.skewedInput("abcdefgh", 100, 2, 4);
+        byte[] old = manager.compress(before);
+        String drifted = TestInputs.skewedInput("hgfedcbaxyz", 20000, 2, 5);
+        manager.observe(drifted);
+        assertTrue(manager.divergence() > 0.05);
+        assertTrue(manager.check());
+        assertEquals(1, manager.current().version());
+        assertTrue(manager.divergence() < 0.05);
+
+        byte[] fresh = manager.compress(drifted);
+        assertEquals(1, ByteBuffer.wrap(fresh).getInt());
+        assertTrue(fresh.length < manager.model(0).huffman().compressToBytes(drifted).length);
+        assertEquals(drifted, manager.decompress(ByteBuffer.wrap(fresh)));
+        assertEquals(before, manager.decompress(ByteBuffer.wrap(old)));
+    }
+
+    //test observe - enough samples start a check on the executor
+    @Test
+    public void testBackgroundCheck() {
+        List<Runnable> tasks = new ArrayList<>();
+        HuffmanModelManager manager = new HuffmanModelManager("abcd", 0.05, 1, tasks::add);
+        String drifted = TestInputs.skewedInput("wxyz", HuffmanModelManager.CHECK_INTERVAL, 2, 6);
+        manager.observe(drifted);
+        manager.observe(drifted);
+        //the second check is not queued while the first is pending
+        assertEquals(1, tasks.size());
+        assertFalse(manager.check());
+        tasks.get(0).run();
+        assertEquals(1, manager.current().version());
+        //the samples the new model was built from are not counted again
+        assertEquals(0, manager.divergence(), 0);
+    }
+
+    //test model - old versions are dropped
+    @Test (expected = IllegalArgumentException.class)
+    public void testRetainedVersions() {
+        HuffmanModelManager manager = new HuffmanModelManager("ab", 0, 1, DIRECT);
+        for (int i = 0; i <= HuffmanModelManager.RETAINED_VERSIONS; i++) {
+            manager.observe(i % 2 == 0 ? "cccccccd" : "ab");
+            manager.check();
+        }
+        assertEquals(HuffmanModelManager.RETAINED_VERSIONS + 1, manager.current().version());
+        manager.model(0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testUnknownVersion() {
+        HuffmanModelManager manager = new HuffmanModelManager("ab");
+        manager.decompress(ByteBuffer.allocate(12).putInt(0, 5));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testSampleRate() {
+        new HuffmanModelManager("ab", 0.05, 0, DIRECT);
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of everything compressed with one {@link Huffman} model. The counters are
+ * striped {@link LongAdder}s, so any number of threads can compress with the same model without
+ * contending on a shared field, and the totals are longs, so they do not overflow after a few
+ * billion characters.
+ * <p>
+ * Reads are not atomic snapshots: a read that races with a compression may see its input length
+ * but not yet its output length. Once the compressing threads are done the totals are exact.
+ */
+public class HuffmanStatistics {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder inputLength = new LongAdder();
+    private final LongAdder inputBits = new LongAdder();
+    private final LongAdder outputLength = new LongAdder();
+
+    /**
+     * Records one compression.
+     *
+     * @param inputSymbols the number of characters or bytes compressed
+     * @param symbolBits   the size of each input symbol, 16 for characters and 8 for bytes
+     * @param outputBits   the number of bits they were compressed to
+     */
+    void record(long inputSymbols, int symbolBits, long outputBits) {
+        inputLength.add(inputSymbols);
+        inputBits.add(inputSymbols * symbolBits);
+        outputLength.add(outputBits);
+        calls.increment();
+    }
+
+    /**
+     * @return true if at least one compression has been recorded
+     */
+    public boolean hasCompressed() {
+        return calls.sum() > 0;
+    }
+
+    /**
+     * @return the total number of characters and bytes compressed
+     */
+    public long inputLength() {
+        return inputLength.sum();
+    }
+
+    /**
+     * @return the total number of bits produced
+     */
+    public long outputLength() {
+        return outputLength.sum();
+    }
+
+    /**
+     * Computes the ratio of output bits to input bits, counting each input character as 16 bits
+     * and each input byte as 8 bits.
+     *
+     * @return the compression ratio so far
+     * @throws IllegalStateException if nothing has been compressed yet
+     */
+    public double compressionRatio() {
+        if (!hasCompressed()) {
+            throw new IllegalStateException("compressed has not been called");
+        }
+        return (double) outputLength() / (double) inputBits.sum();
+    }
+
+}
@@ -0,0 +1,266 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Decodes the packed output of {@link Huffman#compressToBytes(CharSequence)} by looking up a fixed
+ * number of bits at a time instead of walking the tree one bit at a time. Each entry of the
+ * primary table resolves up to four short codes at once; codes longer than the lookup width fall
+ * through to secondary tables indexed by the bits that follow.
+ */
+public class HuffmanTableDecoder {
+    private static final int MAX_SYMBOLS_PER_ENTRY = 4;
+
+    //entry layout: bits 0-5 hold the number of bits consumed, bits 6-8 the number of symbols
+    //(0 for a pointer to a secondary table), bits 9-14 the length of the first symbol and
+    //bits 15-31 the index of the secondary table. An entry of 0 is a bit pattern that no code
+    //starts with.
+    private static final int COUNT_SHIFT = 6;
+    private static final int FIRST_SHIFT = 9;
+    private static final int TABLE_SHIFT = 15;
+    //symbol count of an entry holding the escape code, which is never combined with other codes
+    //since a literal follows it
+    private static final int ESCAPE_COUNT = 7;
+
+    private static class Table {
+        private final int width;
+        private final int[] entries;
+        //up to four 16 bit symbols per entry, first symbol in the low bits
+        private final long[] symbols;
+        private final List<Table> subtables = new ArrayList<>();
+
+        private Table(int width) {
+            this.width = width;
+            entries = new int[1 << width];
+            symbols = new long[1 << width];
+        }
+    }
+
+    private final Table primary;
+    private final int[] symbols;
+    private final long[] codes;
+    private final int[] lengths;
+
+    /**
+     * Builds the lookup tables for a model.
+     *
+     * @param huffman    the model whose encodings will be decoded
+     * @param lookupBits the number of bits resolved by one lookup in the primary table
+     * @throws IllegalArgumentException if huffman is null or lookupBits is not between 1 and 16
+     */
+    public HuffmanTableDecoder(Huffman huffman, int lookupBits) {
+        if (huffman == null) {
+            throw new IllegalArgumentException("null model");
+        }
+        if (lookupBits < 1 || lookupBits > 16) {
+            throw new IllegalArgumentException("lookup bits must be between 1 and 16");
+        }
+
+        List<Integer> alphabet = new ArrayList<>();
+        for (int i = 0; i < huffman.symbolRange(); i++) {
+            if (huffman.codeLength(i) > 0) {
+                alphabet.add(i);
+            }
+        }
+        //the escape code goes last
+        int escape = huffman.escapeLength() > 0 ? 1 : 0;
+        symbols = new int[alphabet.size() + escape];
+        codes = new long[alphabet.size() + escape];
+        lengths = new int[alphabet.size() + escape];
+        int[] members = new int[alphabet.size() + escape];
+        for (int i = 0; i < alphabet.size(); i++) {
+            symbols[i] = huffman.symbolBase() + alphabet.get(i);
+            codes[i] = huffman.codeBits(alphabet.get(i));
+            lengths[i] = huffman.codeLength(alphabet.get(i));
+            members[i] = i;
+        }
+        if (escape > 0) {
+            symbols[alphabet.size()] = Huffman.ESCAPE;
+            codes[alphabet.size()] = huffman.escapeBits();
+            lengths[alphabet.size()] = huffman.escapeLength();
+            members[alphabet.size()] = alphabet.size();
+        }
+
+        primary = buildTable(members, 0, lookupBits);
+        combineShortCodes(primary);
+    }
+
+    /**
+     * Builds the table for the codes in members, all of which share their first consumed bits.
+     */
+    private Table buildTable(int[] members, int consumed, int lookupBits) {
+        int longest = 0;
+        for (int m : members) {
+            longest = Math.max(longest, lengths[m] - consumed);
+        }
+        Table table = new Table(Math.min(lookupBits, longest));
+
+        Map<Integer, List<Integer>> longer = new TreeMap<>();
+        for (int m : members) {
+            int remaining = lengths[m] - consumed;
+            long tail = codes[m] & ((1L << remaining) - 1);
+            if (remaining <= table.width) {
+                //every index starting with this code decodes to it
+                int start = (int) (tail << (table.width - remaining));
+                int count = symbols[m] == Huffman.ESCAPE ? ESCAPE_COUNT : 1;
+                int entry = remaining | (count << COUNT_SHIFT) | (remaining << FIRST_SHIFT);
+                for (int i = start; i < start + (1 << (table.width - remaining)); i++) {
+                    table.entries[i] = entry;
+                    table.symbols[i] = symbols[m];
+                }
+            } else {
+                int prefix = (int) (tail >>> (remaining - table.width));
+                longer.computeIfAbsent(prefix, p -> new ArrayList<>()).add(m);
+            }
+        }
+
+        for (Map.Entry<Integer, List<Integer>> group : longer.entrySet()) {
+            int[] groupMembers = new int[group.getValue().size()];
+            for (int i = 0; i < groupMembers.length; i++) {
+                groupMembers[i] = group.getValue().get(i);
+            }
+            table.entries[group.getKey()] = table.width | (table.subtables.size() << TABLE_SHIFT);
+            table.subtables.add(buildTable(groupMembers, consumed + table.width, lookupBits));
+        }
+        return table;
+    }
+
+    /**
+     * Extends each primary entry with the codes that follow its first one, as long as they are
+     * fully contained in the same lookup.
+     */
+    private static void combineShortCodes(Table table) {
+        int[] single = table.entries.clone();
+        long[] singleSymbols = table.symbols.clone();
+        int mask = (1 << table.width) - 1;
+        for (int i = 0; i < single.length; i++) {
+            if (count(single[i]) == 0 || count(single[i]) == ESCAPE_COUNT) {
+                continue;
+            }
+            int used = consumed(single[i]);
+            int count = 1;
+            long packed = singleSymbols[i];
+            while (count < MAX_SYMBOLS_PER_ENTRY && used < table.width) {
+                int next = single[(i << used) & mask];
+                if (count(next) != 1 || consumed(next) > table.width - used) {
+                    break;
+                }
+                packed |= singleSymbols[(i << used) & mask] << (16 * count);
+                used += consumed(next);
+                count++;
+            }
+            table.entries[i] = used | (count << COUNT_SHIFT) | (first(single[i]) << FIRST_SHIFT);
+            table.symbols[i] = packed;
+        }
+    }
+
+    private static int consumed(int entry) {
+        return entry & 0x3f;
+    }
+
+    private static int count(int entry) {
+        return (entry >>> COUNT_SHIFT) & 0x7;
+    }
+
+    private static int first(int entry) {
+        return (entry >>> FIRST_SHIFT) & 0x3f;
+    }
+
+    /**
+     * Decompresses packed bits in the layout produced by
+     * {@link Huffman#compressToBytes(CharSequence)}, starting at the buffer's position.
+     *
+     * @param input the buffer to read from, its position is advanced past the encoding
+     * @return the decoded characters, identical to {@link Huffman#decompressFromBytes(ByteBuffer)}
+     * @throws IllegalArgumentException if the input is null, truncated, or contains a sequence of
+     *                                  bits that is not decodable
+     */
+    public String decompress(ByteBuffer input) {
+        if (input == null) {
+            throw new IllegalArgumentException("null input");
+        }
+        if (input.remaining() < Long.BYTES) {
+            throw new IllegalArgumentException("missing bit count");
+        }
+        long bitCount = input.getLong();
+        if (bitCount < 0 || (bitCount + 7) / 8 > input.remaining()) {
+            throw new IllegalArgumentException("truncated input");
+        }
+        StringBuilder str = new StringBuilder();
+        decode(input, bitCount, str);
+        return str.toString();
+    }
+
+    /**
+     * Decodes exactly bitCount bits from the input, which must hold at least (bitCount + 7) / 8
+     * bytes, and appends the symbols to out.
+     */
+    void decode(ByteBuffer input, long bitCount, StringBuilder out) {
+        long remaining = bitCount;
+        long bytesLeft = (bitCount + 7) / 8;
+        //unread bits are the low "available" bits of the accumulator
+        long accumulator = 0;
+        int available = 0;
+
+        while (remaining > 0) {
+            Table table = primary;
+            int index;
+            int entry;
+            while (true) {
+                while (available <= 56 && bytesLeft > 0) {
+                    accumulator = (accumulator << 8) | (input.get() & 0xff);
+                    available += 8;
+                    bytesLeft--;
+                }
+                //past the last byte the lookup is padded with zeroes
+                index = available >= table.width
+                        ? (int) (accumulator >>> (available - table.width))
+                        : (int) (accumulator << (table.width - available));
+                index &= (1 << table.width) - 1;
+                entry = table.entries[index];
+                if (entry == 0 || count(entry) > 0) {
+                    break;
+                }
+                //a longer code, continue in the secondary table for this prefix
+                if (remaining < table.width) {
+                    throw new IllegalArgumentException("input ends inside a code");
+                }
+                available -= table.width;
+                remaining -= table.width;
+                table = table.subtables.get(entry >>> TABLE_SHIFT);
+            }
+            if (entry == 0) {
+                throw new IllegalArgumentException("bits do not match any code");
+            }
+
+            int used = consumed(entry);
+            int count = count(entry);
+            if (count == ESCAPE_COUNT) {
+                if (used + Huffman.LITERAL_BITS > remaining) {
+                    throw new IllegalArgumentException("input ends inside a literal");
+                }
+                //the refill above left at least 40 bits, or all the remaining ones
+                available -= used + Huffman.LITERAL_BITS;
+                remaining -= used + Huffman.LITERAL_BITS;
+                out.append((char) (accumulator >>> available));
+                continue;
+            }
+            if (used > remaining) {
+                //only the first code is real data, the rest is padding
+                used = first(entry);
+                count = 1;
+                if (used > remaining) {
+                    throw new IllegalArgumentException("input ends inside a code");
+                }
+            }
+            long packed = table.symbols[index];
+            for (int i = 0; i < count; i++) {
+                out.append((char) (packed >>> (16 * i)));
+            }
+            available -= used;
+            remaining -= used;
+        }
+    }
+}
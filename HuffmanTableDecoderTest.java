@@ -0,0 +1,103 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class HuffmanTableDecoderTest {
+
+    //builds a string with the given number of each letter, starting at 'a'
+    private static String seedOf(int... counts) {
+        StringBuilder seed = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            for (int j = 0; j < counts[i]; j++) {
+                seed.append((char) ('a' + i));
+            }
+        }
+        return seed.toString();
+    }
+
+    //test lookup bits out of range
+    @Test (expected = IllegalArgumentException.class)
+    public void testLookupBitsTooLarge() {
+        new HuffmanTableDecoder(new Huffman("aaabb"), 17);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testNullModel() {
+        new HuffmanTableDecoder(null, 8);
+    }
+
+    //test decompress - same output as the tree walk for every lookup width
+    @Test
+    public void testMatchesTreeWalk() {
+        String seed = "the quick brown fox jumps over the lazy dog, THE END";
+        Huffman h1 = new Huffman(seed);
+        String input = TestInputs.randomInput(seed, 5000, 7);
+        byte[] packed = h1.compressToBytes(input);
+        for (int bits = 1; bits <= 16; bits++) {
+            HuffmanTableDecoder decoder = new HuffmanTableDecoder(h1, bits);
+            assertEquals(h1.decompressFromBytes(ByteBuffer.wrap(packed)),
+                    decoder.decompress(ByteBuffer.wrap(packed)));
+        }
+    }
+
+    //test decompress - codes longer than the lookup width use the secondary tables
+    @Test
+    public void testDeepTree() {
+        String seed = seedOf(1, 1, 2, 3, 5, 8, 13, 21, 34, 55, 89, 144, 233, 377, 610, 987);
+        Huffman h1 = new Huffman(seed);
+        String input = "abcdefghijklmnop" + TestInputs.randomInput(seed, 2000, 3) + "ba";
+        HuffmanTableDecoder decoder = new HuffmanTableDecoder(h1, 4);
+        assertEquals(input, decoder.decompress(ByteBuffer.wrap(h1.compressToBytes(input))));
+    }
+
+    //test decompress - no input
+    @Test
+    public void testEmpty() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        HuffmanTableDecoder decoder = new HuffmanTableDecoder(h1, 8);
+        assertEquals("", decoder.decompress(ByteBuffer.wrap(h1.compressToBytes(""))));
+    }
+
+    //test decompress - input ends in the middle of a code
+    @Test (expected = IllegalArgumentException.class)
+    public void testEndsInsideCode() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        HuffmanTableDecoder decoder = new HuffmanTableDecoder(h1, 8);
+        ByteBuffer buffer = ByteBuffer.allocate(9);
+        //00100 is "ad", the trailing 1 is half of "b"
+        buffer.putLong(6).put((byte) 0b00100100).flip();
+        decoder.decompress(buffer);
+    }
+
+    //test decompress - null
+    @Test (expected = IllegalArgumentException.class)
+    public void testNull() {
+        new HuffmanTableDecoder(new Huffman("aaabb"), 8).decompress(null);
+    }
+
+    //test decompress - canonical models
+    @Test
+    public void testCanonical() {
+        String seed = seedOf(1, 1, 2, 3, 5, 8, 13, 21, 34, 55, 89, 144, 233, 377, 610, 987);
+        Huffman h1 = Huffman.canonical(seed);
+        String input = TestInputs.randomInput(seed, 3000, 11);
+        byte[] packed = h1.compressToBytes(input);
+        assertEquals(input, h1.decompressFromBytes(ByteBuffer.wrap(packed)));
+        assertEquals(input, new HuffmanTableDecoder(h1, 6).decompress(ByteBuffer.wrap(packed)));
+    }
+
+    //test decompress - escaped literals, including inside secondary tables
+    @Test
+    public void testEscape() {
+        String seed = seedOf(1, 1, 2, 3, 5, 8, 13, 21, 34, 55, 89, 144, 233, 377, 610, 987);
+        Huffman h1 = Huffman.withEscape(seed, 2);
+        String input = TestInputs.randomInput(seed, 3000, 5) + "\u00ff\uffff!"
+                + TestInputs.randomInput(seed, 20, 6);
+        byte[] packed = h1.compressToBytes(input);
+        for (int bits = 1; bits <= 16; bits++) {
+            assertEquals(input, new HuffmanTableDecoder(h1, bits)
+                    .decompress(ByteBuffer.wrap(packed)));
+        }
+    }
+}
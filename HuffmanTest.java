@@ -1,5 +1,7 @@
 import org.junit.Test;
 import static org.junit.Assert.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class HuffmanTest {
@@ -32,6 +34,39 @@ public class HuffmanTest {
         assertEquals((double) 9 / (double) (16 * 7), h1.compressionRatio(), 0);
     }
 
+    //test seed codes - equally frequent characters keep the codes of earlier builds
+    @Test
+    public void testSeedCodesPinned() {
+        Huffman h1 = new Huffman("abracadabra");
+        assertEquals("0", h1.encodingOf('a'));
+        assertEquals("110", h1.encodingOf('b'));
+        assertEquals("10", h1.encodingOf('r'));
+        assertEquals("1110", h1.encodingOf('c'));
+        assertEquals("1111", h1.encodingOf('d'));
+
+        //a and q share a hash bucket, so the one seen first comes first
+        Huffman h2 = new Huffman("aaqqbbc");
+        assertEquals("11", h2.encodingOf('a'));
+        assertEquals("01", h2.encodingOf('q'));
+        Huffman h3 = new Huffman("qqaabbc");
+        assertEquals("01", h3.encodingOf('a'));
+        assertEquals("11", h3.encodingOf('q'));
+        assertEquals("10", h3.encodingOf('b'));
+        assertEquals("00", h3.encodingOf('c'));
+    }
+
+    //test seed codes - ties between leaves and merged nodes resolve as they always have
+    @Test
+    public void testSeedCodesPinnedWithMergedTies() {
+        Huffman h1 = new Huffman("the quick brown fox jumps over the lazy dog");
+        assertEquals("1100", h1.encodingOf('o'));
+        assertEquals("11010", h1.encodingOf('r'));
+        assertEquals("11100", h1.encodingOf('t'));
+        assertEquals("111100", h1.encodingOf('k'));
+        assertEquals("111110", h1.encodingOf('v'));
+        assertEquals("111111", h1.encodingOf('d'));
+    }
+
     //test expected encoding length
     @Test
     public void testExpectedSimple() {
@@ -46,6 +81,14 @@ public class HuffmanTest {
         assertEquals(answer, h1.expectedEncodingLength(), 0);
     }
 
+    //test expected length - same value to the last bit as summing the seed's characters
+    @Test
+    public void testExpectedExact() {
+        assertEquals(4.0, new Huffman("wN\\ v9uv]YuJpy%40/").expectedEncodingLength(), 0);
+        assertEquals(3.857142857142856,
+                new Huffman("4\\]nhGB3?krm`S").expectedEncodingLength(), 0);
+    }
+
     //test compress null
     @Test (expected = IllegalArgumentException.class)
     public void testCompressNull() {
@@ -166,5 +209,474 @@ public class HuffmanTest {
         Huffman h1 = new Huffman("");
     }
 
+    //test compress - character inside the alphabet's range but not in the alphabet
+    @Test (expected = IllegalArgumentException.class)
+    public void testCompressGapInAlphabet() {
+        Huffman h1 = new Huffman("aaaaabbbbd");
+        h1.compress("abc");
+    }
+
+    //test compress - alphabet spanning the whole char range
+    @Test
+    public void testCompressWideAlphabet() {
+        Huffman h1 = new Huffman("\u0000\u0000\u0000zz\uffff");
+        String input = "z\uffff\u0000";
+        assertEquals(input, h1.decompress(h1.compress(input)));
+    }
+
+    //test packed bytes - round trip and layout
+    @Test
+    public void testCompressToBytes() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        byte[] packed = h1.compressToBytes("aadb");
+        //8 byte bit count, then 00100 11 padded to one byte
+        assertEquals(9, packed.length);
+        assertEquals(7, ByteBuffer.wrap(packed).getLong());
+        assertEquals((byte) 0b00100110, packed[8]);
+        assertEquals("aadb", h1.decompressFromBytes(ByteBuffer.wrap(packed)));
+    }
+
+    //test packed bytes - string and byte forms agree
+    @Test
+    public void testCompressBufferMatchesString() {
+        Huffman h1 = new Huffman("the quick brown fox jumps over the lazy dog");
+        String input = "the lazy dog jumps";
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        int written = h1.compress(input, buffer);
+        assertEquals(written, buffer.position());
+        buffer.flip();
+        assertEquals(input, h1.decompressFromBytes(buffer));
+        assertEquals(h1.compress(input), h1.compress(h1.decompress(h1.compress(input))));
+    }
+
+    //test packed bytes - not enough room in the output
+    @Test (expected = BufferOverflowException.class)
+    public void testCompressBufferTooSmall() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        h1.compress("abcd", ByteBuffer.allocate(8));
+    }
+
+    //test packed bytes - bit count larger than the data
+    @Test (expected = IllegalArgumentException.class)
+    public void testDecompressBytesTruncated() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        ByteBuffer buffer = ByteBuffer.allocate(9);
+        buffer.putLong(20).put((byte) 0).flip();
+        h1.decompressFromBytes(buffer);
+    }
+
+    //test canonical - codes follow from the lengths alone
+    @Test
+    public void testCanonicalCodes() {
+        Huffman h1 = Huffman.canonical("aaaaabbbbccd");
+        assertEquals("010110111", h1.compress("abcd"));
+        assertEquals("dcba", h1.decompress("111110100"));
+    }
+
+    //test canonical - independent of the map's iteration order
+    @Test
+    public void testCanonicalDeterministic() {
+        Map<Character, Integer> forward = new LinkedHashMap<>();
+        Map<Character, Integer> backward = new LinkedHashMap<>();
+        String letters = "zyxwvutsrqponmlkjihgfedcba";
+        for (int i = 0; i < letters.length(); i++) {
+            forward.put(letters.charAt(i), 1 + i % 3);
+            backward.put(letters.charAt(letters.length() - 1 - i),
+                    1 + (letters.length() - 1 - i) % 3);
+        }
+        assertEquals(Huffman.canonical(forward).compress(letters),
+                Huffman.canonical(backward).compress(letters));
+    }
+
+    //test canonical - model survives a round trip through its code lengths
+    @Test
+    public void testExportCodeLengths() {
+        String seed = "thequickbrownfoxjumpsoverthelazydog";
+        Huffman h1 = Huffman.canonical(seed);
+        byte[] model = h1.exportCodeLengths();
+        //dense layout: tag, first and last symbol, one byte per symbol from 'a' to 'z'
+        assertEquals(5 + 26, model.length);
+        Huffman h2 = Huffman.fromCodeLengths(ByteBuffer.wrap(model));
+        assertEquals(h1.compress(seed), h2.compress(seed));
+        assertEquals(seed, h2.decompress(h1.compress(seed)));
+    }
+
+    //test canonical - sparse alphabets are written as symbol, length pairs
+    @Test
+    public void testExportCodeLengthsSparse() {
+        Huffman h1 = Huffman.canonical("aaa\u4e00\u4e00\uffff");
+        byte[] model = h1.exportCodeLengths();
+        assertEquals(3 + 3 * 3, model.length);
+        Huffman h2 = Huffman.fromCodeLengths(ByteBuffer.wrap(model));
+        assertEquals("\uffffa\u4e00", h2.decompress(h1.compress("\uffffa\u4e00")));
+    }
+
+    //test canonical - only canonical models can be exported
+    @Test (expected = IllegalStateException.class)
+    public void testExportCodeLengthsNotCanonical() {
+        new Huffman("aaabb").exportCodeLengths();
+    }
+
+    //test canonical - lengths that are not a prefix code
+    @Test (expected = IllegalArgumentException.class)
+    public void testFromCodeLengthsOversubscribed() {
+        //three codes of length 1
+        ByteBuffer model = ByteBuffer.allocate(8);
+        model.put((byte) 0).putChar('a').putChar('c').put(new byte[] {1, 1, 1}).flip();
+        Huffman.fromCodeLengths(model);
+    }
+
+    //test canonical - truncated model
+    @Test (expected = IllegalArgumentException.class)
+    public void testFromCodeLengthsTruncated() {
+        byte[] model = Huffman.canonical("aaaaabbbbccd").exportCodeLengths();
+        Huffman.fromCodeLengths(ByteBuffer.wrap(model, 0, model.length - 1));
+    }
+
+    //frequencies 1, 1, 2, 4, ..., doubling, which makes the unconstrained tree as deep as possible
+    private static Map<Character, Integer> skewedAlphabet(int size) {
+        Map<Character, Integer> map = new HashMap<>();
+        map.put('a', 1);
+        for (int i = 1; i < size; i++) {
+            map.put((char) ('a' + i), 1 << (i - 1));
+        }
+        return map;
+    }
+
+    //test length limit - codes never exceed the limit and still decode
+    @Test
+    public void testLengthLimited() {
+        Map<Character, Integer> map = skewedAlphabet(16);
+        Huffman h1 = new Huffman(map, 5);
+        String alphabet = "abcdefghijklmnop";
+        for (int i = 0; i < alphabet.length(); i++) {
+            assertTrue(h1.compress(alphabet.substring(i, i + 1)).length() <= 5);
+        }
+        assertEquals(alphabet, h1.decompress(h1.compress(alphabet)));
+        assertTrue(h1.lengthLimitIncrease() > 0);
+    }
+
+    //test length limit - a limit that is not binding gives the Huffman code lengths
+    @Test
+    public void testLengthLimitNotBinding() {
+        Huffman h1 = new Huffman(skewedAlphabet(6), 20);
+        assertEquals(0.0, h1.lengthLimitIncrease(), 0);
+        assertEquals(Huffman.canonical(skewedAlphabet(6)).compress("abcdef"),
+                h1.compress("abcdef"));
+    }
+
+    //test length limit - tight limit gives a fixed length code
+    @Test
+    public void testLengthLimitTight() {
+        Huffman h1 = new Huffman(skewedAlphabet(8), 3);
+        assertEquals(24, h1.compress("abcdefgh").length());
+        //unconstrained lengths are 7, 7, 6, 5, 4, 3, 2, 1 over weights 1, 1, 2, 4, ..., 64
+        double unconstrained = (7 + 7 + 12 + 20 + 32 + 48 + 64 + 64) / 128.0;
+        assertEquals(3 - unconstrained, h1.lengthLimitIncrease(), 1e-9);
+    }
+
+    //test length limit - too short for the alphabet
+    @Test (expected = IllegalArgumentException.class)
+    public void testLengthLimitTooSmall() {
+        new Huffman(skewedAlphabet(9), 3);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testLengthLimitNullAlphabet() {
+        new Huffman(null, 8);
+    }
+
+    //sum of frequency times code length, the cost a Huffman code minimizes
+    private static long cost(long[] frequencies, int[] lengths) {
+        long total = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            total += frequencies[i] * lengths[i];
+        }
+        return total;
+    }
+
+    //test code lengths - same cost as the tree built with the heap
+    @Test
+    public void testCodeLengthsMatchesHeap() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 50; trial++) {
+            Map<Character, Integer> map = new HashMap<>();
+            long[] frequencies = new long[40];
+            for (int i = 0; i < frequencies.length; i++) {
+                //mix of small frequencies (counting sort) and large ones (comparison sort)
+                int frequency = 1 + (trial % 2 == 0 ? random.nextInt(10) : random.nextInt(1 << 24));
+                frequencies[i] = frequency;
+                map.put((char) ('0' + i), frequency);
+            }
+            Huffman h1 = new Huffman(map);
+            int[] heapLengths = new int[frequencies.length];
+            for (int i = 0; i < frequencies.length; i++) {
+                heapLengths[i] = h1.compress(String.valueOf((char) ('0' + i))).length();
+            }
+            assertEquals(cost(frequencies, heapLengths),
+                    cost(frequencies, Huffman.codeLengths(frequencies)));
+        }
+    }
+
+    //test code lengths - large random frequencies have no ties, so each length is the same
+    @Test
+    public void testCodeLengthsMatchesHeapPerSymbol() {
+        Random random = new Random(12);
+        for (int trial = 0; trial < 50; trial++) {
+            Map<Character, Integer> map = new HashMap<>();
+            long[] frequencies = new long[40];
+            for (int i = 0; i < frequencies.length; i++) {
+                int frequency = 1 + random.nextInt(1 << 24);
+                frequencies[i] = frequency;
+                map.put((char) ('0' + i), frequency);
+            }
+            Huffman h1 = new Huffman(map);
+            int[] lengths = Huffman.codeLengths(frequencies);
+            for (int i = 0; i < frequencies.length; i++) {
+                assertEquals(h1.compress(String.valueOf((char) ('0' + i))).length(), lengths[i]);
+            }
+        }
+    }
+
+    //test code lengths - without ties the lengths themselves are the same
+    @Test
+    public void testCodeLengthsNoTies() {
+        long[] frequencies = {0, 5, 0, 4, 2, 1};
+        assertArrayEquals(new int[] {0, 1, 0, 2, 3, 3}, Huffman.codeLengths(frequencies));
+    }
+
+    //test code lengths - alphabets larger than a char, one and no symbols
+    @Test
+    public void testCodeLengthsLarge() {
+        long[] frequencies = new long[200000];
+        Arrays.fill(frequencies, 3);
+        int[] lengths = Huffman.codeLengths(frequencies);
+        //a complete tree over 200000 leaves has 131072 - 68928 leaves of depth 17
+        int shallow = 0;
+        for (int length : lengths) {
+            assertTrue(length == 17 || length == 18);
+            shallow += length == 17 ? 1 : 0;
+        }
+        assertEquals(131072 - 68928, shallow);
+        assertArrayEquals(new int[] {0, 1}, Huffman.codeLengths(new long[] {0, 7}));
+        assertArrayEquals(new int[] {0, 0}, Huffman.codeLengths(new long[] {0, 0}));
+    }
 
+    @Test (expected = IllegalArgumentException.class)
+    public void testCodeLengthsNegative() {
+        Huffman.codeLengths(new long[] {1, -1, 2});
+    }
+
+    //test expected encoding length - does not count as compression
+    @Test (expected = IllegalStateException.class)
+    public void testExpectedNoSideEffects() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        h1.expectedEncodingLength();
+        h1.compressionRatio();
+    }
+
+    //test expected encoding length - weighted by the map's frequencies
+    @Test
+    public void testExpectedMapConstructor() {
+        Map<Character, Integer> map = new HashMap<>();
+        map.put('a', 4);
+        map.put('b', 2);
+        map.put('d', 1);
+        Huffman h1 = new Huffman(map);
+        assertEquals(10.0 / 7.0, h1.expectedEncodingLength(), 1e-12);
+        assertEquals(10.0 / 7.0, Huffman.canonical(map).expectedEncodingLength(), 1e-12);
+    }
+
+    //test encoding of - same code as compress, without touching the ratio
+    @Test
+    public void testEncodingOf() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        assertEquals("0", h1.encodingOf('a'));
+        assertEquals("100", h1.encodingOf('d'));
+        h1.compress("b");
+        assertEquals(2.0 / 16.0, h1.compressionRatio(), 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testEncodingOfNotInAlphabet() {
+        new Huffman("aaaaabbbbccd").encodingOf('e');
+    }
+
+    //test shared model - totals from many threads add up
+    @Test
+    public void testCompressionRatioConcurrent() throws InterruptedException {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    h1.compress("aad");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8000 * 3, h1.statistics().inputLength());
+        assertEquals(8000 * 5, h1.statistics().outputLength());
+        assertEquals(5.0 / 48.0, h1.compressionRatio(), 1e-12);
+    }
+
+    //test statistics - totals do not overflow an int
+    @Test
+    public void testStatisticsLarge() {
+        HuffmanStatistics statistics = new HuffmanStatistics();
+        statistics.record(3L << 30, Character.SIZE, 3L << 33);
+        statistics.record(3L << 30, Character.SIZE, 3L << 33);
+        assertEquals(6L << 30, statistics.inputLength());
+        assertEquals(0.5, statistics.compressionRatio(), 0);
+    }
+
+    //test with new statistics - same codes, separate totals
+    @Test
+    public void testWithNewStatistics() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        h1.compress("b");
+        Huffman h2 = h1.withNewStatistics();
+        assertFalse(h2.statistics().hasCompressed());
+        assertEquals("00100", h2.compress("aad"));
+        assertEquals("aad", h2.decompress("00100"));
+        assertEquals(5.0 / 48.0, h2.compressionRatio(), 0);
+        assertEquals(2.0 / 16.0, h1.compressionRatio(), 0);
+        assertEquals(h1.expectedEncodingLength(), h2.expectedEncodingLength(), 0);
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void testWithNewStatisticsRatio() {
+        Huffman h1 = new Huffman("aaaaabbbbccd");
+        h1.compress("b");
+        h1.withNewStatistics().compressionRatio();
+    }
+
+    //test bytes - round trip over all 256 values, including negative bytes
+    @Test
+    public void testBytesRoundTrip() {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * i % 256);
+        }
+        Huffman h1 = Huffman.forBytes(data);
+        assertEquals(256, h1.symbolRange());
+        byte[] packed = h1.compressBytes(data);
+        assertArrayEquals(data, h1.decompressBytes(ByteBuffer.wrap(packed)));
+        assertEquals(h1.statistics().outputLength() / 8.0 / data.length, h1.compressionRatio(),
+                1e-12);
+    }
+
+    //test bytes - histogram model, buffer to buffer
+    @Test
+    public void testBytesHistogram() {
+        long[] histogram = new long[256];
+        histogram[0] = 5;
+        histogram[0xFF] = 4;
+        histogram['c'] = 2;
+        histogram['d'] = 1;
+        Huffman h1 = Huffman.forBytes(histogram);
+        ByteBuffer in = ByteBuffer.wrap(new byte[] {0, (byte) 0xFF, 'd', 0});
+        ByteBuffer out = ByteBuffer.allocate(64);
+        int size = h1.compressBytes(in, out);
+        assertEquals(size, out.position());
+        assertFalse(in.hasRemaining());
+        out.flip();
+        assertEquals(out.getLong(0), h1.compress("\u0000\u00ffd\u0000").length());
+        assertArrayEquals(new byte[] {0, (byte) 0xFF, 'd', 0}, h1.decompressBytes(out));
+    }
+
+    //test bytes - overflow leaves the input alone
+    @Test
+    public void testBytesOverflow() {
+        Huffman h1 = Huffman.forBytes(new byte[] {1, 2, 2});
+        ByteBuffer in = ByteBuffer.wrap(new byte[] {1, 2, 1, 2});
+        try {
+            h1.compressBytes(in, ByteBuffer.allocate(8));
+            fail();
+        } catch (BufferOverflowException e) {
+            assertEquals(0, in.position());
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testBytesNotInAlphabet() {
+        Huffman.forBytes(new byte[] {1, 2, 2}).compressBytes(new byte[] {3});
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testBytesOneSymbol() {
+        Huffman.forBytes(new byte[] {7, 7, 7});
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testBytesHistogramLength() {
+        Huffman.forBytes(new long[255]);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testDecompressBytesNotAByte() {
+        Huffman h1 = new Huffman("aaa\u0100");
+        h1.decompressBytes(ByteBuffer.wrap(h1.compressToBytes("\u0100")));
+    }
+
+    //test escape - rare and unseen characters are escaped as literals
+    @Test
+    public void testEscapeRoundTrip() {
+        Huffman h1 = Huffman.withEscape("aaaaabbbbccd", 2);
+        assertEquals("dxc\u4e2dab", h1.decompress(h1.compress("dxc\u4e2dab")));
+        assertEquals(h1.encodingOf('d').length(), h1.encodingOf('x').length());
+        assertTrue(h1.encodingOf('x').endsWith("0000000001111000"));
+        byte[] packed = h1.compressToBytes("zzz\u0000a");
+        assertEquals("zzz\u0000a", h1.decompressFromBytes(ByteBuffer.wrap(packed)));
+    }
+
+    //test escape - the escape code carries the weight of the rare characters
+    @Test
+    public void testEscapeExpected() {
+        Map<Character, Integer> map = new HashMap<>();
+        map.put('a', 4);
+        map.put('b', 2);
+        map.put('c', 1);
+        map.put('d', 1);
+        //codes a:1, b:2, escape:2 with a 16 bit literal
+        Huffman h1 = Huffman.withEscape(map, 2);
+        assertEquals((4 * 1 + 2 * 2 + 2 * 18) / 8.0, h1.expectedEncodingLength(), 1e-12);
+        assertEquals("0", h1.encodingOf('a'));
+        assertEquals(18, h1.encodingOf('c').length());
+    }
+
+    //test escape - the escape code survives export
+    @Test
+    public void testEscapeExport() {
+        Huffman h1 = Huffman.withEscape("the quick brown fox jumps over the lazy dog", 2);
+        Huffman h2 = Huffman.fromCodeLengths(ByteBuffer.wrap(h1.exportCodeLengths()));
+        for (char c : "the dog is QUICK".toCharArray()) {
+            assertEquals(h1.encodingOf(c), h2.encodingOf(c));
+        }
+        assertEquals("dog \u00e9", h2.decompress(h1.compress("dog \u00e9")));
+    }
+
+    //test escape - threshold 0 keeps every character, unseen ones are still escaped
+    @Test
+    public void testEscapeKeepAll() {
+        Huffman h1 = Huffman.withEscape("aab", 0);
+        assertEquals("bq", h1.decompress(h1.compress("bq")));
+        //a:1, b and the escape code:2
+        assertEquals(18, h1.encodingOf('q').length());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testEscapeAllRare() {
+        Huffman.withEscape("abc", 2);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testEscapeTruncatedLiteral() {
+        Huffman h1 = Huffman.withEscape("aab", 0);
+        String bits = h1.compress("x");
+        h1.decompress(bits.substring(0, bits.length() - 1));
+    }
 }
@@ -61,6 +61,8 @@ public class HuffmanVisualizer {
     static JLabel compressRatioSoFar;
     
     static Huffman huffman;
+    //seeds are often entered again, so built models are kept
+    static final HuffmanModelCache models = new HuffmanModelCache(64, 16 << 20);
     static Map<String, Character> encodingToChar;
     
     static int nodeCounter = 0;
@@ -157,7 +159,7 @@ public class HuffmanVisualizer {
         for (int i = 0; i < seed.length(); i++) {
             char c = seed.charAt(i);
             if (!alreadySeenCharacters.contains(c)) {
-                String encoding = huffman.compress(c + "");
+                String encoding = huffman.encodingOf(c);
                 if (encoding == null) {
                     throw new IllegalArgumentException();
                 }
@@ -170,12 +172,10 @@ public class HuffmanVisualizer {
     private static void constructHuffmanTree(String seed) {
         
         try {
-            huffman = new Huffman(seed);
+            huffman = models.get(seed);
             
             try {
                 populateEncodingToChar(seed);
-                // reset because we needed to call compress
-                huffman = new Huffman(seed);
                 drawHuffmanTree(seed);
                 // set EEL
                 expectedEncodingLength.setText("EEL: " + 
@@ -0,0 +1,247 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A min-heap with int keys. It has the contract of {@link BinaryMinHeap}, but keys are kept in an
+ * int[] next to an array of values and compared directly, so the primitive methods box nothing
+ * and never call compareTo. The boxed methods of {@link BinaryMinHeap} are there for callers that
+ * need the interface.
+ * <p>
+ * Ties are broken exactly as in {@link BinaryMinHeapImpl}: a sift-up stops at a parent with an
+ * equal key, and a sift-down moves to the left child unless the right one is strictly smaller.
+ * The same sequence of operations therefore extracts values in the same order from both heaps.
+ *
+ * @param <V> {@inheritDoc}
+ */
+public class IntKeyMinHeap<V> implements BinaryMinHeap<Integer, V> {
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private final PositionMap<V> positions = new PositionMap<>();
+
+    /**
+     * Constructs an empty heap.
+     */
+    public IntKeyMinHeap() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty heap with room for capacity values before it has to grow.
+     *
+     * @param capacity the initial capacity
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public IntKeyMinHeap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity");
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+        positions.ensureCapacity(capacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(V value) {
+        return positions.get(value) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Integer key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null");
+        }
+        add(key.intValue(), value);
+    }
+
+    /**
+     * Runtime: expected O(log n)
+     *
+     * @param key   the priority key to associate with the value
+     * @param value the value to insert into the heap, may be null
+     * @throws IllegalArgumentException if value is already in the min-heap
+     */
+    public void add(int key, V value) {
+        if (containsValue(value)) {
+            throw new IllegalArgumentException("already contained value");
+        }
+        if (size == keys.length) {
+            int capacity = Math.max(16, 2 * size);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        siftUp(size++, key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decreaseKey(V value, Integer newKey) {
+        if (!containsValue(value)) {
+            throw new NoSuchElementException("can not find value");
+        }
+        if (newKey == null) {
+            throw new IllegalArgumentException("key is null");
+        }
+        decreaseKey(value, newKey.intValue());
+    }
+
+    /**
+     * Updates the key of a particular value in the min-heap to a smaller key.
+     * <p>
+     * Runtime: expected O(log n)
+     *
+     * @param value  the value whose associated key to update
+     * @param newKey the key to update value with
+     * @throws NoSuchElementException   if value is not in the heap
+     * @throws IllegalArgumentException if newKey > key(value)
+     */
+    public void decreaseKey(V value, int newKey) {
+        int i = positions.get(value);
+        if (i < 0) {
+            throw new NoSuchElementException("can not find value");
+        }
+        if (newKey > keys[i]) {
+            throw new IllegalArgumentException("given key too big");
+        }
+        siftUp(i, newKey, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry<Integer, V> peek() {
+        return new Entry<>(peekKey(), value(0));
+    }
+
+    /**
+     * Runtime: O(1)
+     *
+     * @return the smallest key in the min-heap
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peekKey() {
+        if (size == 0) {
+            throw new NoSuchElementException("heap empty");
+        }
+        return keys[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry<Integer, V> extractMin() {
+        int key = peekKey();
+        return new Entry<>(key, extractMinValue());
+    }
+
+    /**
+     * Removes the value with the smallest key in the min-heap, with ties broken as in {@link
+     * #extractMin()}. Read its key with {@link #peekKey()} first if it is needed.
+     * <p>
+     * Runtime: expected O(log n)
+     *
+     * @return the value with the smallest key
+     * @throws NoSuchElementException if the min-heap is empty
+     */
+    public V extractMinValue() {
+        if (size == 0) {
+            throw new NoSuchElementException("size too small");
+        }
+        V min = value(0);
+        positions.remove(min);
+        size--;
+        V last = value(size);
+        values[size] = null;
+        if (size > 0) {
+            siftDown(keys[size], last);
+        }
+        return min;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<V> values() {
+        Set<V> set = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            set.add(value(i));
+        }
+        return set;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int i) {
+        return (V) values[i];
+    }
+
+    /**
+     * Moves the hole at i up past every parent with a strictly greater key, then puts the key
+     * and value into it.
+     */
+    private void siftUp(int i, int key, V value) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            positions.put(value(i), i);
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+        positions.put(value, i);
+    }
+
+    /**
+     * Moves the hole at the root down past every smaller child, then puts the key and value into
+     * it.
+     */
+    private void siftDown(int key, V value) {
+        int i = 0;
+        int l;
+        while ((l = 2 * i + 1) < size) {
+            int child = l + 1 < size && keys[l + 1] < keys[l] ? l + 1 : l;
+            if (keys[child] >= key) {
+                break;
+            }
+            keys[i] = keys[child];
+            values[i] = values[child];
+            positions.put(value(i), i);
+            i = child;
+        }
+        keys[i] = key;
+        values[i] = value;
+        positions.put(value, i);
+    }
+}
@@ -0,0 +1,171 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class IntKeyMinHeapTest {
+
+    //test empty heap
+    @Test
+    public void testEmpty() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        assertTrue(a.isEmpty());
+        assertEquals(0, a.size());
+        assertFalse(a.containsValue("a"));
+    }
+
+    //test add - value is already in min heap IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testAddRepeatedValue() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(1, "b");
+        a.add(5, "b");
+    }
+
+    //test add - boxed null key IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testAddNull() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(null, "b");
+    }
+
+    //test negative capacity
+    @Test (expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new IntKeyMinHeap<String>(-1);
+    }
+
+    //test add and extract in key order, past the initial capacity
+    @Test
+    public void testExtractInOrder() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>(0);
+        int[] keys = {5, 1, 2, 4, 10, 11, 12, -3, 7, 0};
+        for (int i = 0; i < keys.length; i++) {
+            a.add(keys[i], "v" + keys[i]);
+        }
+        assertEquals(keys.length, a.size());
+        assertTrue(a.containsValue("v-3"));
+
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        for (int key : sorted) {
+            assertEquals(key, a.peekKey());
+            BinaryMinHeap.Entry<Integer, String> min = a.extractMin();
+            assertEquals(key, (int) min.key);
+            assertEquals("v" + key, min.value);
+            assertFalse(a.containsValue(min.value));
+        }
+        assertTrue(a.isEmpty());
+    }
+
+    //test null values
+    @Test
+    public void testNullValue() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(3, null);
+        a.add(4, "b");
+        assertTrue(a.containsValue(null));
+        a.decreaseKey(null, 1);
+        assertNull(a.extractMinValue());
+        assertFalse(a.containsValue(null));
+        assertEquals("b", a.extractMinValue());
+    }
+
+    //test decrease Key - NoSuchElementException if value is not in heap
+    @Test (expected = NoSuchElementException.class)
+    public void testDecreaseKeyValueNotFound() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(1, "b");
+        a.decreaseKey("e", 0);
+    }
+
+    //test decrease Key - IllegalArgumentException if newKey > key(value)
+    @Test (expected = IllegalArgumentException.class)
+    public void testDecreaseKeyKeyTooBig() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(1, "b");
+        a.add(5, "c");
+        a.decreaseKey("b", 2);
+    }
+
+    //test decrease key - boxed null key IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testDecreaseKeyNullKey() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(1, "b");
+        a.decreaseKey("b", null);
+    }
+
+    //test decrease key - moves the value to the top
+    @Test
+    public void testDecreaseKey() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(5, "b");
+        a.add(7, "c");
+        a.add(10, "d");
+        a.decreaseKey("d", 10);
+        a.decreaseKey("d", 3);
+        assertEquals(3, a.peekKey());
+        assertEquals("d", a.peek().value);
+        assertEquals(new HashSet<>(Arrays.asList("b", "c", "d")), a.values());
+    }
+
+    //test extract min - empty = no such element
+    @Test (expected = NoSuchElementException.class)
+    public void testExtractMinEmpty() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(1, "b");
+        a.extractMinValue();
+        a.extractMinValue();
+    }
+
+    //test peek - empty = no such element
+    @Test (expected = NoSuchElementException.class)
+    public void testPeekEmpty() {
+        new IntKeyMinHeap<String>().peek();
+    }
+
+    //test ties - same extraction order as BinaryMinHeapImpl for random operations
+    @Test
+    public void testSameOrderAsBinaryMinHeapImpl() {
+        Random random = new Random(21);
+        IntKeyMinHeap<Integer> a = new IntKeyMinHeap<>();
+        BinaryMinHeapImpl<Integer, Integer> b = new BinaryMinHeapImpl<>();
+        int next = 0;
+        for (int round = 0; round < 20000; round++) {
+            if (random.nextInt(3) > 0 || b.isEmpty()) {
+                //few distinct keys, so there are plenty of ties
+                Integer key = random.nextInt(8);
+                Integer value = next++;
+                a.add(key, value);
+                b.add(key, value);
+            } else {
+                BinaryMinHeap.Entry<Integer, Integer> expected = b.extractMin();
+                BinaryMinHeap.Entry<Integer, Integer> actual = a.extractMin();
+                assertEquals(expected.key, actual.key);
+                assertEquals(expected.value, actual.value);
+            }
+            assertEquals(b.size(), a.size());
+        }
+        assertEquals(b.values(), a.values());
+    }
+
+    //test addAll - the default checks every entry first, so a rejected one changes nothing
+    @Test
+    public void testAddAllRejected() {
+        IntKeyMinHeap<String> a = new IntKeyMinHeap<>();
+        a.add(1, "a");
+        try {
+            a.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(0, "b"),
+                    new BinaryMinHeap.Entry<>(2, "b")));
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        assertEquals(1, a.size());
+        assertFalse(a.containsValue("b"));
+        a.addAll(Arrays.asList(new BinaryMinHeap.Entry<>(0, "b"),
+                new BinaryMinHeap.Entry<>(2, null)));
+        assertEquals("b", a.extractMinValue());
+        assertEquals(2, a.size());
+    }
+}
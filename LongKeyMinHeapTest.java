@@ -0,0 +1,63 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class LongKeyMinHeapTest {
+
+    //test add and extract in key order, with keys that do not fit in an int
+    @Test
+    public void testExtractInOrder() {
+        LongKeyMinHeap<String> a = new LongKeyMinHeap<>(0);
+        long[] keys = {5, 1L << 40, -(1L << 40), Long.MAX_VALUE, Long.MIN_VALUE, 0, 3};
+        for (long key : keys) {
+            a.add(key, "v" + key);
+        }
+        assertEquals(keys.length, a.size());
+
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        for (long key : sorted) {
+            assertEquals(key, a.peekKey());
+            BinaryMinHeap.Entry<Long, String> min = a.extractMin();
+            assertEquals(key, (long) min.key);
+            assertEquals("v" + key, min.value);
+        }
+        assertTrue(a.isEmpty());
+    }
+
+    //test add - value is already in min heap IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testAddRepeatedValue() {
+        LongKeyMinHeap<String> a = new LongKeyMinHeap<>();
+        a.add(1, "b");
+        a.add(5, "b");
+    }
+
+    //test decrease Key - IllegalArgumentException if newKey > key(value)
+    @Test (expected = IllegalArgumentException.class)
+    public void testDecreaseKeyKeyTooBig() {
+        LongKeyMinHeap<String> a = new LongKeyMinHeap<>();
+        a.add(1L << 33, "b");
+        a.decreaseKey("b", (1L << 33) + 1);
+    }
+
+    //test decrease key - moves the value to the top
+    @Test
+    public void testDecreaseKey() {
+        LongKeyMinHeap<String> a = new LongKeyMinHeap<>();
+        a.add(5, "b");
+        a.add(7, "c");
+        a.add(10, "d");
+        a.decreaseKey("d", -1L << 35);
+        assertEquals(-1L << 35, a.peekKey());
+        assertEquals("d", a.extractMinValue());
+        assertEquals("b", a.extractMinValue());
+        assertEquals(new HashSet<>(Arrays.asList("c")), a.values());
+    }
+
+    //test extract min - empty = no such element
+    @Test (expected = NoSuchElementException.class)
+    public void testExtractMinEmpty() {
+        new LongKeyMinHeap<String>().extractMin();
+    }
+}
@@ -0,0 +1,344 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A pairing heap: a tree in which every node's key is at most the keys of its children, kept as
+ * a list of children per node. Adding a value or decreasing its key just links a tree to the
+ * root, so {@link #add} and {@link #decreaseKey} take O(1) amortized time, while {@link
+ * #extractMin()} pays for the linking by merging the root's children in pairs, in O(log n)
+ * amortized time. This suits workloads that decrease keys far more often than they extract.
+ * <p>
+ * {@link #insert(Comparable, Object)} returns a handle to the value's node, which {@link
+ * #decreaseKey(Handle, Comparable)} accepts to skip looking the value up: a handle knows which
+ * heap it belongs to through a shared owner, so checking it takes no hashing. Two heaps can be
+ * melded in O(1) plus the cost of moving the value index of the smaller one into the larger one.
+ *
+ * @param <V>   {@inheritDoc}
+ * @param <Key> {@inheritDoc}
+ */
+public class PairingMinHeap<Key extends Comparable<Key>, V> implements BinaryMinHeap<Key, V> {
+
+    /**
+     * The heap that the handles pointing at it belong to. Melding repoints the owner of the
+     * larger heap's handles instead of every handle, and only repoints the handles of the
+     * smaller heap one by one.
+     */
+    private static final class Owner {
+        private PairingMinHeap<?, ?> heap;
+
+        private Owner(PairingMinHeap<?, ?> heap) {
+            this.heap = heap;
+        }
+    }
+
+    /**
+     * The node of a value in the heap, valid until the value is extracted.
+     */
+    public static final class Handle<Key, V> {
+        private Key key;
+        private final V value;
+        //null once the value has been extracted
+        private Owner owner;
+        //leftmost child, next sibling, and previous sibling or the parent of a leftmost child
+        private Handle<Key, V> child;
+        private Handle<Key, V> next;
+        private Handle<Key, V> previous;
+
+        private Handle(Key key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * @return the current key of the value
+         */
+        public Key key() {
+            return key;
+        }
+
+        /**
+         * @return the value
+         */
+        public V value() {
+            return value;
+        }
+    }
+
+    private Handle<Key, V> root;
+    private HashMap<V, Handle<Key, V>> nodes = new HashMap<>();
+    private Owner owner = new Owner(this);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(V value) {
+        return nodes.containsKey(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(1)
+     */
+    @Override
+    public void add(Key key, V value) {
+        insert(key, value);
+    }
+
+    /**
+     * Adds a value like {@link #add(Comparable, Object)} and returns its handle.
+     * <p>
+     * Runtime: O(1)
+     *
+     * @param key   the priority key to associate with the value, must be non-null
+     * @param value the value to insert into the heap, may be null
+     * @return the handle of the value, valid until it is extracted
+     * @throws IllegalArgumentException if key is null or value is already in the min-heap
+     */
+    public Handle<Key, V> insert(Key key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null");
+        }
+        if (containsValue(value)) {
+            throw new IllegalArgumentException("already contained value");
+        }
+        Handle<Key, V> node = new Handle<>(key, value);
+        node.owner = owner;
+        nodes.put(value, node);
+        root = root == null ? node : link(root, node);
+        return node;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(1) amortized
+     */
+    @Override
+    public void decreaseKey(V value, Key newKey) {
+        Handle<Key, V> node = nodes.get(value);
+        if (node == null) {
+            throw new NoSuchElementException("can not find value");
+        }
+        decrease(node, newKey);
+    }
+
+    /**
+     * Updates the key of the value of a handle to a smaller key, without looking the value up.
+     * <p>
+     * Runtime: O(1) amortized, with no hashing
+     *
+     * @param handle the handle returned when the value was inserted
+     * @param newKey the key to update value with
+     * @throws NoSuchElementException   if the handle's value is no longer in this heap
+     * @throws IllegalArgumentException if handle is null, or newKey is null or greater than the
+     *                                  current key
+     */
+    public void decreaseKey(Handle<Key, V> handle, Key newKey) {
+        if (handle == null) {
+            throw new IllegalArgumentException("null handle");
+        }
+        if (handle.owner == null || handle.owner.heap != this) {
+            throw new NoSuchElementException("handle not in this heap");
+        }
+        decrease(handle, newKey);
+    }
+
+    private void decrease(Handle<Key, V> node, Key newKey) {
+        if (newKey == null || newKey.compareTo(node.key) > 0) {
+            throw new IllegalArgumentException("given key too big");
+        }
+        node.key = newKey;
+        if (node != root) {
+            //the subtree stays a valid heap, only its link to the parent may be out of order
+            cut(node);
+            root = link(root, node);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry<Key, V> peek() {
+        if (root == null) {
+            throw new NoSuchElementException("heap empty");
+        }
+        return new Entry<>(root.key, root.value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runtime: O(log n) amortized
+     */
+    @Override
+    public Entry<Key, V> extractMin() {
+        if (root == null) {
+            throw new NoSuchElementException("size too small");
+        }
+        Handle<Key, V> min = root;
+        nodes.remove(min.value);
+        min.owner = null;
+        root = mergePairs(min.child);
+        min.child = null;
+        return new Entry<>(min.key, min.value);
+    }
+
+    /**
+     * Moves all values of another heap into this one, leaving the other heap empty. The roots
+     * are linked in O(1); the value index of the smaller heap is then added to that of the
+     * larger one. Handles of the other heap's values stay valid and now belong to this heap.
+     * <p>
+     * Runtime: O(1) plus O(min(n, m)) expected for the value index
+     *
+     * @param other the heap to meld into this one
+     * @throws IllegalArgumentException if other is null or this heap, or the heaps share a value,
+     *                                  in which case neither heap is changed
+     */
+    public void meld(PairingMinHeap<Key, V> other) {
+        if (other == null || other == this) {
+            throw new IllegalArgumentException("can not meld with null or itself");
+        }
+        PairingMinHeap<Key, V> larger = this;
+        PairingMinHeap<Key, V> smaller = other;
+        if (other.nodes.size() > nodes.size()) {
+            larger = other;
+            smaller = this;
+        }
+        for (V value : smaller.nodes.keySet()) {
+            if (larger.nodes.containsKey(value)) {
+                throw new IllegalArgumentException("value in both heaps");
+            }
+        }
+        //the larger heap's index and owner move here as a whole, the smaller heap's handles
+        //are repointed one by one while their values are added to the index
+        HashMap<V, Handle<Key, V>> index = larger.nodes;
+        Owner kept = larger.owner;
+        for (Handle<Key, V> node : smaller.nodes.values()) {
+            node.owner = kept;
+            index.put(node.value, node);
+        }
+        HashMap<V, Handle<Key, V>> emptied = smaller.nodes;
+        emptied.clear();
+        Owner released = smaller.owner;
+        kept.heap = this;
+        released.heap = other;
+        nodes = index;
+        owner = kept;
+        other.nodes = emptied;
+        other.owner = released;
+
+        if (root == null) {
+            root = other.root;
+        } else if (other.root != null) {
+            root = link(root, other.root);
+        }
+        other.root = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<V> values() {
+        return new HashSet<>(nodes.keySet());
+    }
+
+    /**
+     * Makes the root with the larger key the leftmost child of the other, which stays the root
+     * on a tie.
+     *
+     * @return the root of the linked tree
+     */
+    private static <Key extends Comparable<Key>, V> Handle<Key, V> link(Handle<Key, V> a,
+                                                                       Handle<Key, V> b) {
+        if (b.key.compareTo(a.key) < 0) {
+            Handle<Key, V> t = a;
+            a = b;
+            b = t;
+        }
+        b.previous = a;
+        b.next = a.child;
+        if (a.child != null) {
+            a.child.previous = b;
+        }
+        a.child = b;
+        return a;
+    }
+
+    /**
+     * Removes a node and its subtree from its parent's list of children.
+     */
+    private static <Key, V> void cut(Handle<Key, V> node) {
+        if (node.previous.child == node) {
+            node.previous.child = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next != null) {
+            node.next.previous = node.previous;
+        }
+        node.previous = null;
+        node.next = null;
+    }
+
+    /**
+     * Merges a list of siblings into one tree: first links them in pairs from left to right, then
+     * links the pairs from right to left. Both passes are loops, since the list can be as long as
+     * the heap after many adds.
+     *
+     * @return the root of the merged tree, or null for an empty list
+     */
+    private static <Key extends Comparable<Key>, V> Handle<Key, V> mergePairs(
+            Handle<Key, V> first) {
+        //the linked pairs are chained through next in reverse order
+        Handle<Key, V> pairs = null;
+        while (first != null) {
+            Handle<Key, V> a = first;
+            Handle<Key, V> b = a.next;
+            first = b == null ? null : b.next;
+            a.previous = null;
+            a.next = null;
+            if (b != null) {
+                b.previous = null;
+                b.next = null;
+                a = link(a, b);
+            }
+            a.next = pairs;
+            pairs = a;
+        }
+        if (pairs == null) {
+            return null;
+        }
+        Handle<Key, V> merged = pairs;
+        pairs = pairs.next;
+        merged.next = null;
+        while (pairs != null) {
+            Handle<Key, V> next = pairs.next;
+            pairs.next = null;
+            merged = link(pairs, merged);
+            pairs = next;
+        }
+        return merged;
+    }
+}
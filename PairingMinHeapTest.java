@@ -0,0 +1,212 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class PairingMinHeapTest {
+
+    //test empty heap
+    @Test
+    public void testEmpty() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        assertTrue(a.isEmpty());
+        assertEquals(0, a.size());
+        assertFalse(a.containsValue("a"));
+    }
+
+    //test add - null key IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testAddNull() {
+        new PairingMinHeap<Integer, String>().add(null, "b");
+    }
+
+    //test add - value is already in min heap IllegalArgument
+    @Test (expected = IllegalArgumentException.class)
+    public void testAddRepeatedValue() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        a.add(1, "b");
+        a.add(5, "b");
+    }
+
+    //test decrease Key - NoSuchElementException if value is not in heap
+    @Test (expected = NoSuchElementException.class)
+    public void testDecreaseKeyValueNotFound() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        a.add(1, "b");
+        a.decreaseKey("e", 0);
+    }
+
+    //test decrease Key - IllegalArgumentException if newKey > key(value)
+    @Test (expected = IllegalArgumentException.class)
+    public void testDecreaseKeyKeyTooBig() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        a.add(1, "b");
+        a.add(5, "c");
+        a.decreaseKey("b", 2);
+    }
+
+    //test extract min - empty = no such element
+    @Test (expected = NoSuchElementException.class)
+    public void testExtractMinEmpty() {
+        new PairingMinHeap<Integer, String>().extractMin();
+    }
+
+    //test decrease key through a handle
+    @Test
+    public void testHandles() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        a.add(5, "b");
+        PairingMinHeap.Handle<Integer, String> c = a.insert(7, "c");
+        a.add(10, "d");
+        a.decreaseKey(c, 3);
+        assertEquals(3, (int) c.key());
+        assertEquals("c", a.peek().value);
+        assertEquals("c", a.extractMin().value);
+        assertEquals(5, (int) a.extractMin().key);
+    }
+
+    //test decrease key - a handle whose value was extracted
+    @Test (expected = NoSuchElementException.class)
+    public void testStaleHandle() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        PairingMinHeap.Handle<Integer, String> b = a.insert(1, "b");
+        a.extractMin();
+        a.add(2, "b");
+        a.decreaseKey(b, 0);
+    }
+
+    //test random adds, decreases and extracts against a sorted reference
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(25);
+        PairingMinHeap<Integer, Integer> a = new PairingMinHeap<>();
+        Map<Integer, Integer> keys = new HashMap<>();
+        TreeSet<long[]> reference = new TreeSet<>((x, y) -> x[0] != y[0]
+                ? Long.compare(x[0], y[0]) : Long.compare(x[1], y[1]));
+        for (int round = 0; round < 50000; round++) {
+            int op = random.nextInt(4);
+            if (op < 2 || keys.isEmpty()) {
+                Integer value = round;
+                Integer key = random.nextInt(1000);
+                a.add(key, value);
+                keys.put(value, key);
+                reference.add(new long[] {key, value});
+            } else if (op == 2) {
+                Integer value = keys.keySet().iterator().next();
+                Integer key = keys.get(value) - random.nextInt(50);
+                reference.remove(new long[] {keys.get(value), value});
+                a.decreaseKey(value, key);
+                keys.put(value, key);
+                reference.add(new long[] {key, value});
+            } else {
+                BinaryMinHeap.Entry<Integer, Integer> min = a.extractMin();
+                assertEquals(reference.first()[0], (long) min.key);
+                assertEquals(keys.remove(min.value), min.key);
+                reference.remove(new long[] {min.key, min.value});
+            }
+            assertEquals(keys.size(), a.size());
+        }
+        assertEquals(keys.keySet(), a.values());
+    }
+
+    //test a long list of children - extracting does not recurse over it
+    @Test
+    public void testManyAdds() {
+        PairingMinHeap<Integer, Integer> a = new PairingMinHeap<>();
+        for (int i = 0; i < 1000000; i++) {
+            Integer value = i;
+            a.add(1000000 - i, value);
+        }
+        for (int i = 1; i <= 1000000; i++) {
+            assertEquals(i, (int) a.extractMin().key);
+        }
+        assertTrue(a.isEmpty());
+    }
+
+    //test meld - all values end up in one heap, handles stay valid
+    @Test
+    public void testMeld() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        PairingMinHeap<Integer, String> b = new PairingMinHeap<>();
+        a.add(4, "a4");
+        a.add(2, "a2");
+        b.add(3, "b3");
+        PairingMinHeap.Handle<Integer, String> b5 = b.insert(5, "b5");
+        b.add(1, "b1");
+        b.add(6, "b6");
+
+        a.meld(b);
+        assertTrue(b.isEmpty());
+        assertEquals(0, b.size());
+        assertEquals(6, a.size());
+        assertTrue(a.containsValue("b6"));
+
+        a.decreaseKey(b5, 0);
+        assertEquals("b5", a.extractMin().value);
+        String[] order = {"b1", "a2", "b3", "a4", "b6"};
+        for (String value : order) {
+            assertEquals(value, a.extractMin().value);
+        }
+
+        b.add(1, "x");
+        a.meld(b);
+        assertEquals("x", a.peek().value);
+    }
+
+    //test decrease key - a handle of another heap
+    @Test (expected = NoSuchElementException.class)
+    public void testForeignHandle() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        PairingMinHeap<Integer, String> b = new PairingMinHeap<>();
+        a.add(1, "b");
+        PairingMinHeap.Handle<Integer, String> c = b.insert(2, "b");
+        a.decreaseKey(c, 0);
+    }
+
+    //test meld - handles of both heaps belong to the melded heap only
+    @Test
+    public void testMeldHandles() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        PairingMinHeap<Integer, String> b = new PairingMinHeap<>();
+        PairingMinHeap.Handle<Integer, String> a5 = a.insert(5, "a5");
+        a.add(6, "a6");
+        a.add(7, "a7");
+        PairingMinHeap.Handle<Integer, String> b8 = b.insert(8, "b8");
+
+        a.meld(b);
+        a.decreaseKey(b8, 1);
+        a.decreaseKey(a5, 2);
+        assertEquals("b8", a.extractMin().value);
+        assertEquals("a5", a.extractMin().value);
+
+        PairingMinHeap.Handle<Integer, String> b9 = b.insert(9, "b9");
+        try {
+            a.decreaseKey(b9, 0);
+            fail();
+        } catch (NoSuchElementException e) {
+            //expected
+        }
+        b.meld(a);
+        b.decreaseKey(b9, 0);
+        assertEquals("b9", b.extractMin().value);
+        assertEquals("a6", b.extractMin().value);
+    }
+
+    //test meld - a value in both heaps IllegalArgument, neither heap changes
+    @Test
+    public void testMeldSharedValue() {
+        PairingMinHeap<Integer, String> a = new PairingMinHeap<>();
+        PairingMinHeap<Integer, String> b = new PairingMinHeap<>();
+        a.add(1, "a");
+        b.add(2, "a");
+        b.add(3, "b");
+        try {
+            a.meld(b);
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        assertEquals(1, a.size());
+        assertEquals(2, b.size());
+        assertEquals(2, (int) b.peek().key);
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+/**
+ * Maps the values of an indexed heap to their positions in the heap's arrays. This is what a
+ * {@code HashMap<V, Integer>} would do, but positions are kept as plain ints in a table with
+ * linear probing, so moving a value during a sift neither boxes its position nor allocates a map
+ * entry. Values are compared with equals, as in a HashMap, and null is a valid value.
+ *
+ * @param <V> the type of values in the heap
+ */
+class PositionMap<V> {
+    //stands in for the null value, since a null slot is an empty one
+    private static final Object NULL = new Object();
+
+    private Object[] slots = new Object[16];
+    private int[] positions = new int[16];
+    private int size;
+    //the slot of a value is the top bits of its scrambled hash
+    private int shift = 32 - 4;
+
+    /**
+     * @return the position of the value, or -1 if it is not in the map
+     */
+    int get(Object value) {
+        Object key = value == null ? NULL : value;
+        int mask = slots.length - 1;
+        for (int i = slot(key); slots[i] != null; i = (i + 1) & mask) {
+            if (slots[i] == key || slots[i].equals(key)) {
+                return positions[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the position of the value, adding it if it is not in the map.
+     */
+    void put(V value, int position) {
+        Object key = value == null ? NULL : value;
+        int mask = slots.length - 1;
+        int i = slot(key);
+        for (; slots[i] != null; i = (i + 1) & mask) {
+            if (slots[i] == key || slots[i].equals(key)) {
+                positions[i] = position;
+                return;
+            }
+        }
+        slots[i] = key;
+        positions[i] = position;
+        //at most half full keeps the probe sequences short
+        if (++size > slots.length / 2) {
+            resize(2 * slots.length);
+        }
+    }
+
+    /**
+     * Removes the value if it is in the map.
+     *
+     * @return the position it had, or -1 if it was not in the map
+     */
+    int remove(Object value) {
+        Object key = value == null ? NULL : value;
+        int mask = slots.length - 1;
+        for (int i = slot(key); slots[i] != null; i = (i + 1) & mask) {
+            if (slots[i] == key || slots[i].equals(key)) {
+                int position = positions[i];
+                delete(i);
+                size--;
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Empties the slot at i, moving back later values of its probe sequence so that no lookup
+     * stops at the gap before reaching them.
+     */
+    private void delete(int i) {
+        int mask = slots.length - 1;
+        for (int j = (i + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+            int home = slot(slots[j]);
+            //the value at j may move to i unless its home lies cyclically in (i, j]
+            boolean reachable = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+            if (!reachable) {
+                slots[i] = slots[j];
+                positions[i] = positions[j];
+                i = j;
+            }
+        }
+        slots[i] = null;
+    }
+
+    /**
+     * @return the number of values in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values, keeping the table.
+     */
+    void clear() {
+        Arrays.fill(slots, null);
+        size = 0;
+    }
+
+    /**
+     * Makes room for at least the given number of values without resizing.
+     */
+    void ensureCapacity(int values) {
+        int capacity = slots.length;
+        while (capacity / 2 < values && capacity < 1 << 30) {
+            capacity *= 2;
+        }
+        if (capacity != slots.length) {
+            resize(capacity);
+        }
+    }
+
+    private int slot(Object key) {
+        return (key.hashCode() * 0x9e3779b9) >>> shift;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldSlots = slots;
+        int[] oldPositions = positions;
+        slots = new Object[capacity];
+        positions = new int[capacity];
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldSlots.length; j++) {
+            if (oldSlots[j] != null) {
+                int i = slot(oldSlots[j]);
+                while (slots[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = oldSlots[j];
+                positions[i] = oldPositions[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import java.util.Random;
+
+/**
+ * Reproducible random inputs for the codec tests.
+ */
+final class TestInputs {
+    private TestInputs() {
+    }
+
+    /**
+     * @param alphabet the characters to draw from, each equally likely
+     * @param length the length of the input
+     * @param seed the seed of the random generator
+     * @return an input of the given length over alphabet
+     */
+    static String randomInput(String alphabet, int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return input.toString();
+    }
+
+    /**
+     * @param alphabet the characters to draw from, earlier ones more likely
+     * @param length the length of the input
+     * @param power how strongly the input is skewed towards the start of alphabet
+     * @param seed the seed of the random generator
+     * @return an input of the given length over alphabet
+     */
+    static String skewedInput(String alphabet, int length, double power, long seed) {
+        Random random = new Random(seed);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int index = (int) (alphabet.length() * Math.pow(random.nextDouble(), power));
+            input.append(alphabet.charAt(index));
+        }
+        return input.toString();
+    }
+}